@@ -1,23 +1,36 @@
+import core.board.Board;
+import core.board.PieceColor;
 import core.game.Game;
 import core.game.GameResult;
+import core.game.Move;
 import core.game.timer.StopwatchCPU;
 import core.game.ui.Configuration;
 import core.match.GameEvent;
 import core.match.Match;
 import core.player.Player;
+import stud.bench.GameArchive;
+import stud.bench.JournaledEvent;
+import stud.bench.RacingEvent;
+import stud.bench.Sprt;
+import stud.bench.SprtMatch;
 
 
+import java.nio.file.Paths;
 import java.util.ArrayList;
 
 /**
  * 六子棋AI评测程序
  */
 public class AITester {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws Exception {
         StopwatchCPU timer = new StopwatchCPU();
         testAllVersions();
+//        sprtV4();
+//        raceAllVersions();
 //        zeroCarnival();
 //        oneMatch();
+//        checkV2BlocksAsBlack();
+//        checkSprtStops();
         double elapsedTime = timer.elapsedTime();
         System.out.printf("总耗时: %.4f秒\n", elapsedTime);
     }
@@ -37,6 +50,35 @@ public class AITester {
         GameEvent event = new GameEvent("AI Evolution Test", players);
         event.carnivalRun(6);
         event.showResults();
+        GameArchive.record(event);
+    }
+
+    // V4 对 V3 的 SPRT 早停对抗：先后手成对下棋，判定 V4 是否至少强 20 Elo，得出结论即停
+    private static void sprtV4() {
+        SprtMatch match = new SprtMatch(stud.v4.AI::new, stud.v3.AI::new, 0, 20);
+        match.run();
+    }
+
+    // SPRT 在 candidate 每对全胜(样本方差为 0)时也能尽早接受 H1，而不是下满对数上限
+    private static void checkSprtStops() {
+        Sprt sprt = new Sprt(0, 20, 0.05, 0.05);
+        for (int i = 0; i < 20 && sprt.status() == Sprt.Status.CONTINUE; i++) {
+            sprt.add(2, 2);
+        }
+        if (sprt.status() != Sprt.Status.ACCEPT_H1) throw new AssertionError("20 对全胜未接受 H1：" + sprt);
+        System.out.println(sprt);
+    }
+
+    // 各版本竞速赛：按轮淘汰后一半，对局集中在强者之间
+    private static void raceAllVersions() {
+        ArrayList<Player> players = new ArrayList<>();
+        players.add(new stud.v1.AI());
+        players.add(new stud.v2.AI());
+        players.add(new stud.v3.AI());
+        players.add(new stud.v4.AI());
+
+        GameEvent event = new GameEvent("AI Racing", players);
+        new RacingEvent(event).run(60);
     }
 
     // 走法2 vs 走法3，各500场
@@ -68,7 +110,8 @@ public class AITester {
 
         //每对棋手下500局棋，先后手各250局
         //n个棋手，共下C(n,2)*500局棋，每个棋手下500*(n-1)局棋
-        event.carnivalRun(500);
+        //对局随下随记入日志，中途退出后重新运行只补下未完成的对局
+        new JournaledEvent(event, Paths.get("zero-carnival.c6ga")).run(500);
         event.showResults();
     }
 
@@ -106,5 +149,30 @@ public class AITester {
             System.out.println(result);
         }
     }
-}
 
+    // V2 执黑(后手)时能挡住白方两处"六格路中已有五子"的威胁：颜色取错时 V2 会把白方的连六点当成自己的，只挡一处
+    private static void checkV2BlocksAsBlack() throws Exception {
+        stud.v2.AI v2 = new stud.v2.AI();
+        v2.setColor(PieceColor.BLACK);
+        v2.findMove(new Move(cell(0, 0), cell(0, 2)));
+        Board board = v2.getBoard();
+        board.makeMove(new Move(cell(15, 2), cell(15, 3)));
+        board.makeMove(new Move(cell(0, 18), cell(18, 0)));
+        board.makeMove(new Move(cell(15, 4), cell(15, 6)));
+        board.makeMove(new Move(cell(18, 18), cell(5, 18)));
+        board.makeMove(new Move(cell(12, 2), cell(12, 3)));
+        board.makeMove(new Move(cell(8, 18), cell(18, 8)));
+        board.makeMove(new Move(cell(12, 4), cell(12, 6)));
+        board.makeMove(new Move(cell(18, 12), cell(3, 16)));
+        // 白方第 15、12 行的 2..7 列各有五子，空点分别在第 5 列
+        Move reply = v2.findMove(new Move(cell(15, 7), cell(12, 7)));
+        boolean blocked = (reply.index1() == cell(15, 5) || reply.index2() == cell(15, 5))
+                && (reply.index1() == cell(12, 5) || reply.index2() == cell(12, 5));
+        if (!blocked) throw new AssertionError("V2 执黑没有挡住五子：" + reply);
+        System.out.println("V2 执黑挡住了两处五子");
+    }
+
+    private static int cell(int row, int col) {
+        return row * 19 + col;
+    }
+}
@@ -0,0 +1,316 @@
+package stud.bench;
+
+import java.io.BufferedReader;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分布式比赛的协调进程
+ * 赛程与 GameEvent.carnivalRun 相同(见 JournaledEvent)，每局作为一个任务交给连上来的 Worker。
+ * 每个工作进程是独立的 JVM，有自己的堆与 GC；可以在本机开多个，也可以在别的机器上运行。
+ * 结果追加到日志(GameArchive，批量 fsync)并计入 EventStats；重新运行时跳过日志中已完成的对局。
+ * 连接断开时，该连接上未完成的任务重新排队；工作进程报错的任务重试，MAX_ATTEMPTS 次后放弃。
+ * 棋手的设置(固定搜索量 stud.v2.nodes、stud.v4.simulations，计时方式 stud.v4.clock，参数文件 stud.v4.params 等)
+ * 是工作进程里的系统属性：本机工作进程自动继承本进程的 stud.* 属性，别的机器上的工作进程须在命令行给出相同的 -Dstud.* 参数。
+ * stud.archive 除外，对局已记入本进程的日志，多个工作进程同时追加同一存档会写乱。
+ * 协议为 UTF-8 文本行：
+ * Worker 先发 "HELLO 名字"；Coordinator 发 "GAME 任务号 先走类名 后走类名"，没有任务时发 "DONE"；
+ * Worker 回 "RESULT 任务号 对局记录(GameRecord.encode)" 或 "ERROR 任务号 说明"，再领下一局。
+ */
+public final class Coordinator {
+
+    static final String HELLO = "HELLO";
+    static final String GAME = "GAME";
+    static final String RESULT = "RESULT";
+    static final String ERROR = "ERROR";
+    static final String DONE = "DONE";
+
+    private static final int MAX_ATTEMPTS = 3;
+    private static final int SYNC_GAMES = 16;
+
+    private final int port;
+    private final Path journal;
+    private final List<String> classes;
+    private final EventStats stats = new EventStats();
+
+    // 以下由 this 保护
+    private final Deque<Task> queue = new ArrayDeque<>();
+    private final Map<String, String> names = new HashMap<>();
+    private int pending;
+    private int completed;
+    private int unsynced;
+    private GameArchive.Writer writer;
+    private UncheckedIOException failure;
+
+    private static final class Task {
+        final int id;
+        final String first;
+        final String second;
+        int attempts;
+
+        Task(int id, String first, String second) {
+            this.id = id;
+            this.first = first;
+            this.second = second;
+        }
+    }
+
+    /**
+     * classes 为棋手类名(需有无参构造)；port 为 0 时使用任意空闲端口
+     */
+    public Coordinator(int port, Path journal, List<String> classes) {
+        if (classes.size() < 2) throw new IllegalArgumentException("need at least two players");
+        this.port = port;
+        this.journal = journal;
+        this.classes = new ArrayList<>(classes);
+    }
+
+    /**
+     * 用法：Coordinator 端口 日志文件 每组局数 [--local 本机工作进程数] 棋手类名...
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 5) {
+            System.out.println("usage: Coordinator <port> <journal> <gamesPerPairing> [--local <workers>] <player class>...");
+            return;
+        }
+        int games = Integer.parseInt(args[2]);
+        int local = 0;
+        int first = 3;
+        if (args[3].equals("--local")) {
+            local = Integer.parseInt(args[4]);
+            first = 5;
+        }
+        List<String> classes = Arrays.asList(args).subList(first, args.length);
+        new Coordinator(Integer.parseInt(args[0]), Paths.get(args[1]), classes).run(games, local);
+        // 框架的计时器等线程可能还在，结束进程
+        System.exit(0);
+    }
+
+    /**
+     * 补足每两名棋手之间的 gamesPerPairing 局，全部完成(或放弃)后返回统计。
+     * localWorkers > 0 时在本机启动这么多个工作进程(与本进程相同的 java、类路径与 stud.* 系统属性)
+     */
+    public EventStats run(int gamesPerPairing, int localWorkers) throws IOException {
+        Set<String> distinct = new HashSet<>();
+        for (String c : classes) {
+            String name = Duel.factory(c).get().name();
+            if (!distinct.add(name)) throw new IllegalArgumentException("duplicate player name: " + name);
+            names.put(c, name);
+        }
+
+        Map<String, Integer> done = new HashMap<>();
+        int existing = 0;
+        if (Files.exists(journal) && Files.size(journal) > 0) {
+            existing = GameArchive.forEach(journal, g -> {
+                stats.add(g);
+                done.merge(g.first() + "\n" + g.second(), 1, Integer::sum);
+            });
+        }
+        int id = 0;
+        for (int i = 0; i < classes.size() - 1; i++) {
+            for (int j = i + 1; j < classes.size(); j++) {
+                // 与 Match 相同：第偶数局排在前面的先走，两种先后手交替排队，中途停下时先后手局数也大致相当
+                String[][] orders = {{classes.get(i), classes.get(j)}, {classes.get(j), classes.get(i)}};
+                int[] needed = {(gamesPerPairing + 1) / 2, gamesPerPairing / 2};
+                int[] remaining = new int[2];
+                for (int o = 0; o < 2; o++) {
+                    remaining[o] = needed[o] - done.getOrDefault(names.get(orders[o][0]) + "\n" + names.get(orders[o][1]), 0);
+                }
+                for (int g = 0; remaining[0] > 0 || remaining[1] > 0; g++) {
+                    int o = g & 1;
+                    if (remaining[o] <= 0) continue;
+                    remaining[o]--;
+                    queue.add(new Task(id++, orders[o][0], orders[o][1]));
+                }
+            }
+        }
+        pending = queue.size();
+        System.out.println("协调进程：日志中已有 " + existing + " 局，待下 " + pending + " 局");
+        if (pending == 0) return stats;
+
+        List<Process> workers = new ArrayList<>();
+        try (GameArchive.Writer w = new GameArchive.Writer(journal);
+             ServerSocket server = new ServerSocket(port)) {
+            synchronized (this) {
+                writer = w;
+            }
+            System.out.println("协调进程：监听端口 " + server.getLocalPort());
+            Thread acceptor = new Thread(() -> accept(server), "coordinator-accept");
+            acceptor.setDaemon(true);
+            acceptor.start();
+            for (int k = 0; k < localWorkers; k++) workers.add(spawn(server.getLocalPort()));
+
+            synchronized (this) {
+                while (pending > 0) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IllegalStateException("coordinator interrupted", e);
+                    }
+                }
+                if (failure != null) throw failure;
+                w.sync();
+                writer = null;
+            }
+        }
+        // 空闲的连接会收到 DONE，工作进程随即退出
+        for (Process p : workers) {
+            try {
+                if (!p.waitFor(30, TimeUnit.SECONDS)) p.destroy();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                p.destroy();
+            }
+        }
+        System.out.println("协调进程：本次完成 " + completed + " 局");
+        stats.print();
+        return stats;
+    }
+
+    private static Process spawn(int port) throws IOException {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        List<String> command = new ArrayList<>();
+        command.add(java);
+        command.add("-Dfile.encoding=UTF-8");
+        for (String key : System.getProperties().stringPropertyNames()) {
+            if (key.startsWith("stud.") && !key.equals("stud.archive")) {
+                command.add("-D" + key + "=" + System.getProperty(key));
+            }
+        }
+        command.addAll(Arrays.asList("-cp", System.getProperty("java.class.path"),
+                Worker.class.getName(), "localhost", String.valueOf(port)));
+        return new ProcessBuilder(command).inheritIO().start();
+    }
+
+    private void accept(ServerSocket server) {
+        while (!server.isClosed()) {
+            try {
+                Socket socket = server.accept();
+                Thread handler = new Thread(() -> serve(socket), "coordinator-" + socket.getRemoteSocketAddress());
+                handler.setDaemon(true);
+                handler.start();
+            } catch (IOException e) {
+                // 服务端关闭
+                return;
+            }
+        }
+    }
+
+    // 一条连接：发任务、收结果，直到没有任务或连接断开
+    private void serve(Socket socket) {
+        Task current = null;
+        String worker = String.valueOf(socket.getRemoteSocketAddress());
+        try (Socket s = socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8));
+             PrintWriter out = new PrintWriter(new OutputStreamWriter(s.getOutputStream(), StandardCharsets.UTF_8), true)) {
+            String hello = in.readLine();
+            if (hello == null || !hello.startsWith(HELLO)) throw new IOException("expected " + HELLO + ", got " + hello);
+            worker = hello.substring(HELLO.length()).trim();
+            while (true) {
+                current = take();
+                if (current == null) {
+                    out.println(DONE);
+                    return;
+                }
+                out.println(GAME + " " + current.id + " " + current.first + " " + current.second);
+                String reply = in.readLine();
+                if (reply == null) throw new EOFException("connection closed during game " + current.id);
+                String[] parts = reply.split(" ", 3);
+                if (parts.length < 3 || Integer.parseInt(parts[1]) != current.id) throw new IOException("unexpected reply: " + reply);
+                if (parts[0].equals(RESULT)) {
+                    complete(current, GameRecord.decode(parts[2]), worker);
+                } else if (parts[0].equals(ERROR)) {
+                    fail(current, worker + "：" + parts[2]);
+                } else {
+                    throw new IOException("unexpected reply: " + reply);
+                }
+                current = null;
+            }
+        } catch (IOException | RuntimeException e) {
+            System.out.println("协调进程：工作线程 " + worker + " 断开：" + e);
+            if (current != null) requeue(current);
+        }
+    }
+
+    // 有任务时取出一个；全部完成时返回 null；其余情况等待(别的连接上的任务可能重新排队)
+    private synchronized Task take() {
+        while (queue.isEmpty() && pending > 0) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+        }
+        return queue.poll();
+    }
+
+    private synchronized void complete(Task task, GameRecord record, String worker) {
+        if (!record.first().equals(names.get(task.first)) || !record.second().equals(names.get(task.second))) {
+            fail(task, worker + "：players do not match the assignment");
+            return;
+        }
+        try {
+            writer.append(record);
+            if (++unsynced >= SYNC_GAMES) {
+                writer.sync();
+                unsynced = 0;
+            }
+        } catch (UncheckedIOException e) {
+            // 日志写不进去时继续下棋没有意义，结束整个比赛
+            failure = e;
+            queue.clear();
+            pending = 0;
+            notifyAll();
+            throw e;
+        }
+        stats.add(record);
+        completed++;
+        pending--;
+        if (completed % 100 == 0) System.out.println("协调进程：已完成 " + completed + " 局，剩余 " + pending + " 局");
+        notifyAll();
+    }
+
+    private synchronized void fail(Task task, String message) {
+        task.attempts++;
+        System.out.println("协调进程：第 " + task.id + " 局出错(" + task.attempts + "/" + MAX_ATTEMPTS + ") " + message);
+        if (task.attempts >= MAX_ATTEMPTS) {
+            pending--;
+            notifyAll();
+        } else {
+            requeue(task);
+        }
+    }
+
+    private synchronized void requeue(Task task) {
+        queue.addFirst(task);
+        notifyAll();
+    }
+
+    /** 日志中全部对局的统计 */
+    public EventStats stats() {
+        return stats;
+    }
+}
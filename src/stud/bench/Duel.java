@@ -0,0 +1,173 @@
+package stud.bench;
+
+import core.game.Game;
+import core.game.GameResult;
+import core.game.Move;
+import core.game.ui.Configuration;
+import core.player.Player;
+
+import java.lang.reflect.Field;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * 无界面对弈
+ * 每局都用新建的棋手实例，避免框架浅克隆后共享的状态(结果列表、缓存等)在局间串扰。
+ * 对局在框架自己的线程里运行，超时由框架的计时器处理，与 GameEvent.runGames 一致。
+ * 得分沿用框架的记法：胜 2、和 1、负 0。
+ */
+public final class Duel {
+
+    public static final int WIN = 2;
+    public static final int DRAW = 1;
+    public static final int LOSS = 0;
+
+    private Duel() {
+    }
+
+    /**
+     * 下一局，返回先手的得分。只要得分，对局结果不留在棋手的结果列表里
+     */
+    public static int play(Player first, Player second) {
+        GameResult result = game(first, second);
+        forget(result);
+        return result.score(first.name());
+    }
+
+    /**
+     * 下一局，返回框架记录的对局结果。
+     * 系统属性 stud.archive 指定存档文件时，对局连同每步用时一起追加到存档
+     */
+    public static GameResult game(Player first, Player second) {
+        GameArchive.Writer archive = GameArchive.configured();
+        List<Integer> times = archive == null ? null : Collections.synchronizedList(new ArrayList<>());
+        GameResult result = run(first, second, times);
+        if (archive != null) archive.append(GameRecord.of(result, times));
+        return result;
+    }
+
+    /**
+     * 下一局，返回带每步用时的对局记录，对局结果不留在棋手的结果列表里。同样会追加到 stud.archive
+     */
+    public static GameRecord record(Player first, Player second) {
+        List<Integer> times = Collections.synchronizedList(new ArrayList<>());
+        GameResult result = run(first, second, times);
+        forget(result);
+        GameRecord record = GameRecord.of(result, times);
+        GameArchive.Writer archive = GameArchive.configured();
+        if (archive != null) archive.append(record);
+        return record;
+    }
+
+    // times 不为 null 时记录每步用时(毫秒)
+    // 框架只通过 java.util.Observable 通知每一步，addObserver 的弃用警告无法避免
+    @SuppressWarnings("deprecation")
+    private static GameResult run(Player first, Player second, List<Integer> times) {
+        if (first.name().equals(second.name())) {
+            // 框架按名字记录胜者，同名时无法区分
+            throw new IllegalArgumentException("players must have distinct names: " + first.name());
+        }
+        Configuration.GUI = false;
+        Game game = new Game(first, second);
+        if (times != null) {
+            // 对局每落一步通知一次观察者，相邻两次通知的间隔即这一步的用时
+            long[] last = {System.nanoTime()};
+            game.addObserver((source, move) -> {
+                long now = System.nanoTime();
+                times.add((int) ((now - last[0]) / 1000000));
+                last[0] = now;
+            });
+        }
+        try {
+            game.start().join();
+            // 超时由计时器线程结束对局，结果在其后写入
+            while (game.running()) Thread.sleep(1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("game interrupted", e);
+        }
+        List<GameResult> results = first.gameResults();
+        if (results.isEmpty()) throw new IllegalStateException("game ended without a result");
+        return results.get(results.size() - 1);
+    }
+
+    /**
+     * 从双方的结果列表中移除这一局。
+     * 克隆出的棋手与原棋手共享结果列表，成千上万局的比赛若不移除，内存随局数线性增长
+     */
+    public static void forget(GameResult result) {
+        for (Player p : new Player[]{result.getFirst(), result.getSecond()}) {
+            List<GameResult> results = p.gameResults();
+            for (int i = results.size() - 1; i >= 0; i--) {
+                if (results.get(i) == result) {
+                    results.remove(i);
+                    break;
+                }
+            }
+        }
+    }
+
+    // ==================== 对局结果 ====================
+    // 框架没有公开 GameResult 的着法、步数与结束原因，只能反射读取
+
+    /**
+     * 对局结果中的着法序列(不含开局时已在天元的黑子)
+     */
+    @SuppressWarnings("unchecked")
+    public static List<Move> moves(GameResult result) {
+        return new ArrayList<>((List<Move>) field(result, "moves"));
+    }
+
+    public static int steps(GameResult result) {
+        return (Integer) field(result, "steps");
+    }
+
+    public static String endReason(GameResult result) {
+        return (String) field(result, "endReason");
+    }
+
+    public static LocalDate date(GameResult result) {
+        return (LocalDate) field(result, "date");
+    }
+
+    private static Object field(GameResult result, String name) {
+        try {
+            Field field = GameResult.class.getDeclaredField(name);
+            field.setAccessible(true);
+            return field.get(result);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("cannot read " + name + " of game result", e);
+        }
+    }
+
+    /**
+     * 按类名创建棋手的工厂，每次调用都返回新实例
+     */
+    public static Supplier<Player> factory(String className) {
+        try {
+            Class<? extends Player> type = Class.forName(className).asSubclass(Player.class);
+            type.getDeclaredConstructor();
+            return () -> {
+                try {
+                    return type.getDeclaredConstructor().newInstance();
+                } catch (ReflectiveOperationException e) {
+                    throw new IllegalStateException("cannot create " + className, e);
+                }
+            };
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            throw new IllegalArgumentException("not a player class: " + className, e);
+        }
+    }
+
+    /**
+     * 交换先后手各下一局，返回 candidate 的 {先手局得分, 后手局得分}
+     */
+    public static int[] pair(Supplier<? extends Player> candidate, Supplier<? extends Player> baseline) {
+        int asFirst = play(candidate.get(), baseline.get());
+        int asSecond = WIN - play(baseline.get(), candidate.get());
+        return new int[]{asFirst, asSecond};
+    }
+}
@@ -0,0 +1,158 @@
+package stud.bench;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 流式对局统计
+ * 每下完一局调用一次 add，只更新计数器：每名棋手与每对棋手的胜/和/负(按先后手分开)、对局步数直方图、Elo 估计。
+ * 占用的内存只与棋手数有关，与对局数无关；着法不在这里保存，需要时写进 GameArchive。
+ * Elo 按得分率换算，区间为 95% 正态近似。线程安全。
+ */
+public final class EventStats {
+
+    /** 步数直方图每格的宽度 */
+    public static final int LENGTH_BUCKET = 10;
+    /** 直方图格数，最后一格包含更长的对局 */
+    public static final int BUCKETS = 20;
+
+    private final Map<String, Record> players = new LinkedHashMap<>();
+    private final Map<String, Pair> pairs = new LinkedHashMap<>();
+    private final long[] lengths = new long[BUCKETS];
+    private long games;
+
+    // 一方的战绩，先走(执白)与后走(执黑)分开
+    private static final class Record {
+        final long[] asFirst = new long[3];   // 胜、和、负
+        final long[] asSecond = new long[3];
+
+        void add(boolean first, int score) {
+            (first ? asFirst : asSecond)[score == Duel.WIN ? 0 : score == Duel.DRAW ? 1 : 2]++;
+        }
+
+        long games() {
+            return asFirst[0] + asFirst[1] + asFirst[2] + asSecond[0] + asSecond[1] + asSecond[2];
+        }
+
+        long points() {
+            return Duel.WIN * (asFirst[0] + asSecond[0]) + Duel.DRAW * (asFirst[1] + asSecond[1]);
+        }
+
+        double rate() {
+            long n = games();
+            return n == 0 ? 0.5 : points() / (2.0 * n);
+        }
+
+        // 每局得分(0、0.5、1)的方差
+        double variance() {
+            long n = games();
+            if (n == 0) return 0;
+            double mean = rate();
+            double wins = asFirst[0] + asSecond[0];
+            double draws = asFirst[1] + asSecond[1];
+            return (wins + 0.25 * draws) / n - mean * mean;
+        }
+    }
+
+    // 一对棋手，记录中 a 为名字较小的一方
+    private static final class Pair {
+        final String a;
+        final String b;
+        final Record record = new Record();
+        final long[] lengths = new long[BUCKETS];
+        long moves;
+
+        Pair(String a, String b) {
+            this.a = a;
+            this.b = b;
+        }
+    }
+
+    /**
+     * 记一局：first 先走，winner 为 GameRecord.DRAW/FIRST_WINS/SECOND_WINS，moves 为着法数
+     */
+    public synchronized void add(String first, String second, int winner, int moves) {
+        int firstScore = winner == GameRecord.FIRST_WINS ? Duel.WIN : winner == GameRecord.SECOND_WINS ? Duel.LOSS : Duel.DRAW;
+        players.computeIfAbsent(first, k -> new Record()).add(true, firstScore);
+        players.computeIfAbsent(second, k -> new Record()).add(false, Duel.WIN - firstScore);
+
+        boolean ordered = first.compareTo(second) <= 0;
+        String a = ordered ? first : second;
+        String b = ordered ? second : first;
+        Pair pair = pairs.computeIfAbsent(a + "\n" + b, k -> new Pair(a, b));
+        pair.record.add(ordered, ordered ? firstScore : Duel.WIN - firstScore);
+
+        int bucket = Math.min(BUCKETS - 1, moves / LENGTH_BUCKET);
+        pair.lengths[bucket]++;
+        pair.moves += moves;
+        lengths[bucket]++;
+        games++;
+    }
+
+    public void add(GameRecord game) {
+        add(game.first(), game.second(), game.winner(), game.moveCount());
+    }
+
+    public synchronized long games() {
+        return games;
+    }
+
+    /**
+     * player 的得分率(胜 1、和 0.5)
+     */
+    public synchronized double rate(String player) {
+        Record r = players.get(player);
+        return r == null ? 0.5 : r.rate();
+    }
+
+    /**
+     * a 对 b 的 Elo 差估计与 95% 区间 {估计, 下限, 上限}
+     */
+    public synchronized double[] elo(String a, String b) {
+        boolean ordered = a.compareTo(b) <= 0;
+        Pair pair = pairs.get(ordered ? a + "\n" + b : b + "\n" + a);
+        if (pair == null) return new double[]{0, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY};
+        double[] e = elo(pair.record);
+        return ordered ? e : new double[]{-e[0], -e[2], -e[1]};
+    }
+
+    private static double[] elo(Record r) {
+        long n = r.games();
+        if (n == 0) return new double[]{0, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY};
+        double margin = 1.959964 * Math.sqrt(r.variance() / n);
+        return new double[]{Sprt.eloOf(r.rate()), Sprt.eloOf(r.rate() - margin), Sprt.eloOf(r.rate() + margin)};
+    }
+
+    /**
+     * 打印全部统计
+     */
+    public synchronized void print() {
+        System.out.println("共 " + games + " 局");
+        List<Map.Entry<String, Record>> ranking = new ArrayList<>(players.entrySet());
+        ranking.sort((x, y) -> Long.compare(y.getValue().points(), x.getValue().points()));
+        System.out.println("棋手                         局数   得分率  先走 胜/和/负      后走 胜/和/负      Elo(对全场)");
+        for (Map.Entry<String, Record> e : ranking) {
+            Record r = e.getValue();
+            double[] elo = elo(r);
+            System.out.printf("%-28s %6d %6.1f%%  %5d/%d/%-8d %5d/%d/%-8d %+7.1f [%+.1f, %+.1f]%n", e.getKey(), r.games(),
+                    100 * r.rate(), r.asFirst[0], r.asFirst[1], r.asFirst[2], r.asSecond[0], r.asSecond[1], r.asSecond[2],
+                    elo[0], elo[1], elo[2]);
+        }
+        System.out.println("对阵");
+        for (Pair pair : pairs.values()) {
+            Record r = pair.record;
+            double[] elo = elo(r);
+            System.out.printf("  %s vs %s：%d 局，%s 先走 %d/%d/%d，后走 %d/%d/%d，Elo %+.1f [%+.1f, %+.1f]，平均 %.1f 步%n",
+                    pair.a, pair.b, r.games(), pair.a, r.asFirst[0], r.asFirst[1], r.asFirst[2],
+                    r.asSecond[0], r.asSecond[1], r.asSecond[2], elo[0], elo[1], elo[2], r.games() == 0 ? 0.0 : (double) pair.moves / r.games());
+        }
+        System.out.println("步数分布");
+        for (int i = 0; i < BUCKETS; i++) {
+            if (lengths[i] == 0) continue;
+            String range = i == BUCKETS - 1 ? (i * LENGTH_BUCKET) + "+" : (i * LENGTH_BUCKET) + "-" + ((i + 1) * LENGTH_BUCKET - 1);
+            System.out.printf("  %8s %8d%n", range, lengths[i]);
+        }
+    }
+}
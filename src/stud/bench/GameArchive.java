@@ -0,0 +1,455 @@
+package stud.bench;
+
+import core.game.GameResult;
+import core.match.GameEvent;
+import core.player.Player;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * 对局存档
+ * 文件头 8 字节：魔数 "C6GA" 与版本号。其后是一串条目，每个条目为 varint 长度、内容与内容的 CRC32，内容首字节为类型：
+ * 字符串条目定义下一个字符串编号(棋手名、结束原因)，之后的对局按编号引用，名字在整个文件中只存一次；
+ * 对局条目依次为 标志(是否有用时)、first、second、胜方、结束原因、步数、日期(epoch day)、着法数、
+ * 每步两子合成一个 varint(index1 * 361 + index2，最多 3 字节)、每步用时(毫秒)。
+ * 除首字节外都是 varint，一局三十来步的棋约一百多字节。
+ * 写入只追加；重新打开时从第一个不完整或校验不符的条目(写到一半时进程或机器崩溃)处截断再接着写，
+ * sync 之后的条目在崩溃后仍然完整。
+ * 读取把文件分段映射到内存，打开时扫描一遍建立对局的偏移索引，之后可按下标随机读取。
+ * 条目长度有上限，各段映射向后多映射一个条目的长度，从任一段内开始的条目都能在该段内读完。
+ */
+public final class GameArchive {
+
+    private static final int MAGIC = 0x43364741; // "C6GA"
+    private static final int VERSION = 2;
+    private static final int HEADER = 8;
+    private static final int STRING = 0;
+    private static final int GAME = 1;
+    private static final int HAS_TIMES = 1;
+    private static final int CELLS = 361;
+    private static final int MAX_ENTRY = 1 << 20;
+    // 长度前缀与校验和的最大字节数
+    private static final int ENTRY_OVERHEAD = 3 + 4;
+    private static final long SEGMENT = 1L << 30;
+
+    private static volatile Writer configured;
+    private static boolean configuredLoaded;
+
+    private GameArchive() {
+    }
+
+    /**
+     * 系统属性 stud.archive 指定的存档，未指定时为 null。进程退出时自动关闭
+     */
+    public static Writer configured() {
+        Writer w = configured;
+        if (w == null) {
+            synchronized (GameArchive.class) {
+                if (!configuredLoaded) {
+                    configuredLoaded = true;
+                    String file = System.getProperty("stud.archive");
+                    if (file != null) {
+                        try {
+                            w = new Writer(Paths.get(file));
+                        } catch (IOException e) {
+                            throw new UncheckedIOException("cannot open game archive " + file, e);
+                        }
+                        Writer opened = w;
+                        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                            try {
+                                opened.close();
+                            } catch (IOException ignored) {
+                            }
+                        }));
+                        configured = w;
+                    }
+                }
+                w = configured;
+            }
+        }
+        return w;
+    }
+
+    /**
+     * 把 GameEvent(如 carnivalRun)下完的全部对局追加到 stud.archive 指定的存档，未指定时什么也不做。
+     * 框架的对局不经过 Duel，没有每步用时
+     */
+    public static void record(GameEvent event) {
+        Writer w = configured();
+        if (w == null) return;
+        // 同一局记在双方(以及共享结果列表的克隆)名下，按对象去重
+        Set<GameResult> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Player p : event.getPlayers()) {
+            for (GameResult result : p.gameResults()) {
+                if (seen.add(result)) w.append(GameRecord.of(result, null));
+            }
+        }
+        w.flush();
+    }
+
+    /**
+     * 顺序读出存档中的每一局，不建偏移索引，占用的内存与局数无关；返回局数
+     */
+    public static int forEach(Path file, Consumer<GameRecord> action) throws IOException {
+        try (Reader reader = new Reader(file, action)) {
+            return reader.size();
+        }
+    }
+
+    /**
+     * 用法：GameArchive 存档文件 [起始下标 [局数]]，打印统计与指定范围的对局
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("usage: GameArchive <file> [from [count]]");
+            return;
+        }
+        Path file = Paths.get(args[0]);
+        EventStats stats = new EventStats();
+        int games = forEach(file, stats::add);
+        System.out.printf("文件 %d 字节(每局 %.1f 字节)%n", Files.size(file), games == 0 ? 0.0 : (double) Files.size(file) / games);
+        stats.print();
+
+        int from = args.length > 1 ? Integer.parseInt(args[1]) : 0;
+        int count = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        if (count > 0) {
+            try (Reader reader = new Reader(file)) {
+                for (int i = from; i < Math.min(reader.size(), from + count); i++) {
+                    System.out.println(i + ": " + reader.get(i));
+                }
+            }
+        }
+    }
+
+    // ==================== 写入 ====================
+
+    /**
+     * 追加写入，线程安全。写入经过缓冲，flush 或 close 后才落到文件
+     */
+    public static final class Writer implements Closeable {
+
+        private final FileChannel channel;
+        private final OutputStream out;
+        private final Map<String, Integer> strings = new HashMap<>();
+        private final Buffer entry = new Buffer();
+        private final Buffer length = new Buffer();
+        private long games;
+
+        public Writer(Path file) throws IOException {
+            long end = 0;
+            if (Files.exists(file) && Files.size(file) > 0) {
+                try (Reader existing = new Reader(file)) {
+                    for (int i = 0; i < existing.strings.size(); i++) strings.put(existing.strings.get(i), i);
+                    games = existing.size();
+                    end = existing.end;
+                }
+            }
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            try {
+                if (end == 0) {
+                    ByteBuffer header = ByteBuffer.allocate(HEADER).putInt(MAGIC).putInt(VERSION);
+                    header.flip();
+                    channel.truncate(0);
+                    channel.write(header, 0);
+                    end = HEADER;
+                } else if (end < channel.size()) {
+                    channel.truncate(end);
+                }
+                channel.position(end);
+            } catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+            out = new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16);
+        }
+
+        /** 存档中的对局数(含本次写入) */
+        public synchronized long size() {
+            return games;
+        }
+
+        public synchronized void append(GameRecord game) {
+            try {
+                int first = intern(game.first());
+                int second = intern(game.second());
+                int reason = game.endReason() == null ? 0 : intern(game.endReason()) + 1;
+
+                entry.clear();
+                entry.put(GAME);
+                entry.put(game.hasTimes() ? HAS_TIMES : 0);
+                entry.varint(first);
+                entry.varint(second);
+                entry.put(game.winner());
+                entry.varint(reason);
+                entry.varint(game.steps());
+                entry.varint(game.date() == null ? 0 : game.date().toEpochDay() + 1);
+                entry.varint(game.moveCount());
+                for (int i = 0; i < game.moveCount(); i++) {
+                    entry.varint(game.cell(i, 0) * CELLS + game.cell(i, 1));
+                }
+                if (game.hasTimes()) {
+                    for (int i = 0; i < game.moveCount(); i++) entry.varint(Math.max(0, game.time(i)));
+                }
+                write(entry);
+                games++;
+            } catch (IOException e) {
+                throw new UncheckedIOException("cannot append to game archive", e);
+            }
+        }
+
+        private int intern(String s) throws IOException {
+            Integer id = strings.get(s);
+            if (id != null) return id;
+            entry.clear();
+            entry.put(STRING);
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            entry.put(bytes, bytes.length);
+            write(entry);
+            id = strings.size();
+            strings.put(s, id);
+            return id;
+        }
+
+        private void write(Buffer content) throws IOException {
+            if (content.size > MAX_ENTRY) throw new IllegalArgumentException("archive entry too large: " + content.size);
+            length.clear();
+            length.varint(content.size);
+            out.write(length.bytes, 0, length.size);
+            out.write(content.bytes, 0, content.size);
+            CRC32 crc = new CRC32();
+            crc.update(content.bytes, 0, content.size);
+            int sum = (int) crc.getValue();
+            out.write(sum >>> 24);
+            out.write(sum >>> 16);
+            out.write(sum >>> 8);
+            out.write(sum);
+        }
+
+        public synchronized void flush() {
+            try {
+                out.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException("cannot flush game archive", e);
+            }
+        }
+
+        /**
+         * 把已写入的条目刷到磁盘(fsync)，返回后即使机器崩溃也不会丢失
+         */
+        public synchronized void sync() {
+            try {
+                out.flush();
+                channel.force(false);
+            } catch (IOException e) {
+                throw new UncheckedIOException("cannot sync game archive", e);
+            }
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            out.close();
+        }
+    }
+
+    // 可增长的字节缓冲
+    private static final class Buffer {
+        byte[] bytes = new byte[256];
+        int size;
+
+        void clear() {
+            size = 0;
+        }
+
+        void put(int b) {
+            if (size == bytes.length) bytes = Arrays.copyOf(bytes, 2 * size);
+            bytes[size++] = (byte) b;
+        }
+
+        void put(byte[] b, int n) {
+            for (int i = 0; i < n; i++) put(b[i]);
+        }
+
+        void varint(long v) {
+            while ((v & ~0x7FL) != 0) {
+                put((int) ((v & 0x7F) | 0x80));
+                v >>>= 7;
+            }
+            put((int) v);
+        }
+    }
+
+    // ==================== 读取 ====================
+
+    /**
+     * 内存映射读取。打开后只读，多线程可以同时 get
+     */
+    public static final class Reader implements Closeable {
+
+        private final FileChannel channel;
+        private final MappedByteBuffer[] segments;
+        private final List<String> strings = new ArrayList<>();
+        private long[] offsets = new long[1024];
+        private int size;
+        // 最后一个完整条目之后的位置
+        private final long end;
+
+        public Reader(Path file) throws IOException {
+            this(file, null);
+        }
+
+        // stream 不为 null 时不建索引，扫描中把每局依次交给 stream
+        private Reader(Path file, Consumer<GameRecord> stream) throws IOException {
+            channel = FileChannel.open(file, StandardOpenOption.READ);
+            try {
+                long length = channel.size();
+                ByteBuffer header = ByteBuffer.allocate(HEADER);
+                if (length >= HEADER) channel.read(header, 0);
+                header.flip();
+                if (header.remaining() < HEADER || header.getInt() != MAGIC) throw new IOException("not a game archive: " + file);
+                int version = header.getInt();
+                if (version != VERSION) throw new IOException("unsupported archive version " + version + " in " + file);
+
+                int count = (int) ((length + SEGMENT - 1) / SEGMENT);
+                segments = new MappedByteBuffer[count];
+                for (int s = 0; s < count; s++) {
+                    long start = s * SEGMENT;
+                    segments[s] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(length - start, SEGMENT + MAX_ENTRY + ENTRY_OVERHEAD));
+                }
+                end = index(length, stream);
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        // 扫描全部条目：记录字符串表与每局的偏移，返回最后一个完整且校验相符的条目之后的位置
+        private long index(long length, Consumer<GameRecord> stream) {
+            long pos = HEADER;
+            long[] cursor = new long[1];
+            while (pos < length) {
+                cursor[0] = pos;
+                long n = varint(cursor, length);
+                long start = cursor[0];
+                if (n <= 0 || n > MAX_ENTRY || start + n + 4 > length) break;
+                ByteBuffer content = segment(start).duplicate();
+                content.position((int) (start % SEGMENT)).limit((int) (start % SEGMENT + n));
+                CRC32 crc = new CRC32();
+                crc.update(content);
+                int sum = byteAt(start + n) << 24 | (byteAt(start + n + 1) & 0xFF) << 16
+                        | (byteAt(start + n + 2) & 0xFF) << 8 | (byteAt(start + n + 3) & 0xFF);
+                if (sum != (int) crc.getValue()) break;
+                int type = byteAt(start);
+                if (type == STRING) {
+                    byte[] bytes = new byte[(int) n - 1];
+                    for (int i = 0; i < bytes.length; i++) bytes[i] = (byte) byteAt(start + 1 + i);
+                    strings.add(new String(bytes, StandardCharsets.UTF_8));
+                } else if (type == GAME) {
+                    if (stream != null) {
+                        stream.accept(decode(start, start + n));
+                    } else {
+                        if (size == offsets.length) offsets = Arrays.copyOf(offsets, 2 * size);
+                        offsets[size] = start;
+                    }
+                    size++;
+                }
+                pos = start + n + 4;
+            }
+            return pos;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        /** 存档中出现过的名字与结束原因 */
+        public List<String> strings() {
+            return Collections.unmodifiableList(strings);
+        }
+
+        public GameRecord get(int index) {
+            if (index < 0 || index >= size) throw new IndexOutOfBoundsException("game " + index + " of " + size);
+            return decode(offsets[index], end);
+        }
+
+        private GameRecord decode(long offset, long end) {
+            long[] cursor = {offset + 1};
+            int flags = byteAt(cursor[0]++);
+            String first = strings.get((int) varint(cursor, end));
+            String second = strings.get((int) varint(cursor, end));
+            int winner = byteAt(cursor[0]++);
+            long reason = varint(cursor, end);
+            int steps = (int) varint(cursor, end);
+            long day = varint(cursor, end);
+            int moveCount = (int) varint(cursor, end);
+            int[] moves = new int[2 * moveCount];
+            for (int i = 0; i < moveCount; i++) {
+                int pair = (int) varint(cursor, end);
+                moves[2 * i] = pair / CELLS;
+                moves[2 * i + 1] = pair % CELLS;
+            }
+            int[] times = null;
+            if ((flags & HAS_TIMES) != 0) {
+                times = new int[moveCount];
+                for (int i = 0; i < moveCount; i++) times[i] = (int) varint(cursor, end);
+            }
+            return new GameRecord(first, second, winner, reason == 0 ? null : strings.get((int) reason - 1), steps,
+                    day == 0 ? null : LocalDate.ofEpochDay(day - 1), moves, times);
+        }
+
+        private int byteAt(long pos) {
+            return segments[(int) (pos / SEGMENT)].get((int) (pos % SEGMENT));
+        }
+
+        // 从 pos 起的一个条目都在 pos 所在段的映射内：各段向后多映射了一个条目的最大长度
+        private ByteBuffer segment(long pos) {
+            return segments[(int) (pos / SEGMENT)];
+        }
+
+        // 从 cursor[0] 读一个 varint 并前移；越过 limit 时返回 -1
+        private long varint(long[] cursor, long limit) {
+            long pos = cursor[0];
+            ByteBuffer segment = segment(pos);
+            int base = (int) (pos % SEGMENT);
+            long value = 0;
+            for (int shift = 0, i = 0; shift < 64; shift += 7, i++) {
+                if (pos + i >= limit) return -1;
+                int b = segment.get(base + i);
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    cursor[0] = pos + i + 1;
+                    return value;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package stud.bench;
+
+import core.game.GameResult;
+import core.game.Move;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * 存档中的一局棋
+ * first 先走(执白，开局黑子已在天元)，second 执黑。着法按 Move.index1()/index2() 成对存放，
+ * times 为每步用时(毫秒)，没有记录时为 null。实例不可变。
+ */
+public final class GameRecord {
+
+    public static final int DRAW = 0;
+    public static final int FIRST_WINS = 1;
+    public static final int SECOND_WINS = 2;
+
+    private final String first;
+    private final String second;
+    private final int winner;
+    private final String endReason;
+    private final int steps;
+    private final LocalDate date;
+    private final int[] moves;
+    private final int[] times;
+
+    public GameRecord(String first, String second, int winner, String endReason, int steps,
+                      LocalDate date, int[] moves, int[] times) {
+        if (winner < DRAW || winner > SECOND_WINS) throw new IllegalArgumentException("bad winner: " + winner);
+        if ((moves.length & 1) != 0) throw new IllegalArgumentException("moves must come in pairs");
+        if (times != null && times.length != moves.length / 2) {
+            throw new IllegalArgumentException("times must have one entry per move");
+        }
+        this.first = first;
+        this.second = second;
+        this.winner = winner;
+        this.endReason = endReason;
+        this.steps = steps;
+        this.date = date;
+        this.moves = moves.clone();
+        this.times = times == null ? null : times.clone();
+    }
+
+    /**
+     * 由框架的对局结果构造；times 与着法数不一致时(如超时结束的对局)不记用时
+     */
+    public static GameRecord of(GameResult result, List<Integer> times) {
+        String first = result.getFirst().name();
+        String second = result.getSecond().name();
+        int score = result.score(first);
+        int winner = score == Duel.WIN ? FIRST_WINS : score == Duel.LOSS ? SECOND_WINS : DRAW;
+        List<Move> moves = Duel.moves(result);
+        int[] cells = new int[2 * moves.size()];
+        for (int i = 0; i < moves.size(); i++) {
+            cells[2 * i] = moves.get(i).index1();
+            cells[2 * i + 1] = moves.get(i).index2();
+        }
+        int[] ms = null;
+        if (times != null && times.size() == moves.size()) {
+            ms = new int[times.size()];
+            for (int i = 0; i < ms.length; i++) ms[i] = times.get(i);
+        }
+        return new GameRecord(first, second, winner, Duel.endReason(result), Duel.steps(result),
+                Duel.date(result), cells, ms);
+    }
+
+    public String first() {
+        return first;
+    }
+
+    public String second() {
+        return second;
+    }
+
+    /** DRAW、FIRST_WINS 或 SECOND_WINS */
+    public int winner() {
+        return winner;
+    }
+
+    public String endReason() {
+        return endReason;
+    }
+
+    public int steps() {
+        return steps;
+    }
+
+    public LocalDate date() {
+        return date;
+    }
+
+    public int moveCount() {
+        return moves.length / 2;
+    }
+
+    public Move move(int i) {
+        return new Move(moves[2 * i], moves[2 * i + 1]);
+    }
+
+    /** 第 i 步两子的格子下标 */
+    public int cell(int i, int stone) {
+        return moves[2 * i + stone];
+    }
+
+    public boolean hasTimes() {
+        return times != null;
+    }
+
+    /** 第 i 步用时(毫秒) */
+    public int time(int i) {
+        return times[i];
+    }
+
+    /**
+     * 编码成一行文本(字段以制表符分隔)，供进程之间传输；名字与结束原因中不能含制表符或换行
+     */
+    public String encode() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(first).append('\t').append(second).append('\t').append(winner).append('\t')
+                .append(endReason == null ? "" : endReason).append('\t').append(steps).append('\t')
+                .append(date == null ? "" : String.valueOf(date.toEpochDay())).append('\t');
+        join(sb, moves);
+        sb.append('\t');
+        if (times == null) sb.append('-');
+        else join(sb, times);
+        return sb.toString();
+    }
+
+    public static GameRecord decode(String line) {
+        String[] f = line.split("\t", -1);
+        if (f.length != 8) throw new IllegalArgumentException("bad game record: " + line);
+        return new GameRecord(f[0], f[1], Integer.parseInt(f[2]), f[3].isEmpty() ? null : f[3], Integer.parseInt(f[4]),
+                f[5].isEmpty() ? null : LocalDate.ofEpochDay(Long.parseLong(f[5])), split(f[6]),
+                f[7].equals("-") ? null : split(f[7]));
+    }
+
+    private static void join(StringBuilder sb, int[] values) {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) sb.append(',');
+            sb.append(values[i]);
+        }
+    }
+
+    private static int[] split(String s) {
+        if (s.isEmpty()) return new int[0];
+        String[] parts = s.split(",");
+        int[] values = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) values[i] = Integer.parseInt(parts[i]);
+        return values;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(first).append(" vs ").append(second).append(' ')
+                .append(winner == DRAW ? "和" : (winner == FIRST_WINS ? first : second) + " 胜")
+                .append(' ').append(endReason).append(' ').append(date).append(' ').append(moveCount()).append(" 步:");
+        for (int i = 0; i < moveCount(); i++) {
+            sb.append(' ').append(move(i));
+            if (times != null) sb.append('(').append(times[i]).append("ms)");
+        }
+        return sb.toString();
+    }
+}
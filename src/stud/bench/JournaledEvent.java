@@ -0,0 +1,161 @@
+package stud.bench;
+
+import core.game.GameResult;
+import core.game.Move;
+import core.match.GameEvent;
+import core.player.Player;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 可中断续跑的循环赛
+ * 与 GameEvent.carnivalRun 相同的赛程：每两名棋手下 n 局，先后手交替(n 为奇数时排在前面的棋手多一局先手)。
+ * 每下完一局就追加到日志(GameArchive 格式)，每 SYNC_GAMES 局或 SYNC_MILLIS 毫秒 fsync 一次，结束时再 fsync。
+ * 重新运行时先读日志：已下完的对局不再重下，只补足缺少的局数。
+ * 统计随每局更新到 EventStats(含日志中已有的对局)，内存与局数无关，着法只在日志里。
+ * keepResults 为真时，结束后再按日志重建各棋手的 gameResults()，GameEvent 的 showResults 等统计与一次跑完的结果相同；
+ * 局数很多时应设为假，只看 stats()，否则这些结果列表(每局带完整着法)会占满内存。
+ * 崩溃时最多丢失最近一批未 fsync 的对局，续跑时会重下这几局。
+ */
+public final class JournaledEvent {
+
+    private static final int SYNC_GAMES = 16;
+    private static final long SYNC_MILLIS = 10000;
+
+    private final GameEvent event;
+    private final Path journal;
+    private final boolean keepResults;
+    private final EventStats stats = new EventStats();
+
+    public JournaledEvent(GameEvent event, Path journal) {
+        this(event, journal, true);
+    }
+
+    public JournaledEvent(GameEvent event, Path journal, boolean keepResults) {
+        this.event = event;
+        this.journal = journal;
+        this.keepResults = keepResults;
+    }
+
+    /** 日志中全部对局的统计 */
+    public EventStats stats() {
+        return stats;
+    }
+
+    /**
+     * 补足每两名棋手之间的 gamesPerPairing 局，返回本次实际下的局数
+     */
+    public int run(int gamesPerPairing) {
+        List<Player> players = event.getPlayers();
+        Map<String, Player> byName = new HashMap<>();
+        for (Player p : players) {
+            if (byName.put(p.name(), p) != null) throw new IllegalArgumentException("duplicate player name: " + p.name());
+        }
+
+        Map<String, Integer> done = new HashMap<>();
+        int existing = 0;
+        try {
+            if (Files.exists(journal) && Files.size(journal) > 0) {
+                existing = GameArchive.forEach(journal, g -> {
+                    stats.add(g);
+                    done.merge(key(g.first(), g.second()), 1, Integer::sum);
+                });
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("cannot read journal " + journal, e);
+        }
+        System.out.println(event.getName() + "：日志中已有 " + existing + " 局");
+
+        int played = 0;
+        try (GameArchive.Writer writer = new GameArchive.Writer(journal)) {
+            int unsynced = 0;
+            long lastSync = System.currentTimeMillis();
+            for (int i = 0; i < players.size() - 1; i++) {
+                for (int j = i + 1; j < players.size(); j++) {
+                    Player one = players.get(i);
+                    Player another = players.get(j);
+                    // 与 Match 相同：第偶数局 one 先走，两种先后手交替进行，中途停下时先后手局数也大致相当
+                    int[] needed = {(gamesPerPairing + 1) / 2, gamesPerPairing / 2};
+                    Player[][] orders = {{one, another}, {another, one}};
+                    int[] remaining = new int[2];
+                    for (int o = 0; o < 2; o++) {
+                        remaining[o] = needed[o] - done.getOrDefault(key(orders[o][0].name(), orders[o][1].name()), 0);
+                    }
+                    for (int g = 0; remaining[0] > 0 || remaining[1] > 0; g++) {
+                        int o = g & 1;
+                        if (remaining[o] <= 0) continue;
+                        remaining[o]--;
+                        Player first = orders[o][0];
+                        Player second = orders[o][1];
+                        GameResult result = Duel.game(copy(first), copy(second));
+                        GameRecord record = GameRecord.of(result, null);
+                        writer.append(record);
+                        stats.add(record);
+                        Duel.forget(result);
+                        played++;
+                        unsynced++;
+                        if (unsynced >= SYNC_GAMES || System.currentTimeMillis() - lastSync >= SYNC_MILLIS) {
+                            writer.sync();
+                            unsynced = 0;
+                            lastSync = System.currentTimeMillis();
+                        }
+                    }
+                }
+            }
+            writer.sync();
+        } catch (IOException e) {
+            throw new UncheckedIOException("cannot write journal " + journal, e);
+        }
+        System.out.println(event.getName() + "：本次下了 " + played + " 局");
+
+        if (keepResults) {
+            rebuild(byName);
+            Collections.sort(players);
+        }
+        return played;
+    }
+
+    // 用日志中的对局替换各棋手的结果列表
+    private void rebuild(Map<String, Player> byName) {
+        for (Player p : byName.values()) p.gameResults().clear();
+        try {
+            GameArchive.forEach(journal, g -> addResult(g, byName));
+        } catch (IOException e) {
+            throw new UncheckedIOException("cannot read journal " + journal, e);
+        }
+    }
+
+    private static void addResult(GameRecord g, Map<String, Player> byName) {
+        Player first = byName.get(g.first());
+        Player second = byName.get(g.second());
+        // 日志中已不在本次赛程里的棋手不计入统计
+        if (first == null || second == null) return;
+        String winner = g.winner() == GameRecord.FIRST_WINS ? first.name()
+                : g.winner() == GameRecord.SECOND_WINS ? second.name() : "NONE";
+        ArrayList<Move> moves = new ArrayList<>();
+        for (int i = 0; i < g.moveCount(); i++) moves.add(g.move(i));
+        GameResult result = new GameResult(first, second, winner, g.steps(), g.endReason(), moves);
+        first.addGameResult(result);
+        second.addGameResult(result);
+    }
+
+    private static String key(String first, String second) {
+        return first + "\n" + second;
+    }
+
+    private static Player copy(Player p) {
+        try {
+            return (Player) p.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
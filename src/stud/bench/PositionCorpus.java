@@ -0,0 +1,215 @@
+package stud.bench;
+
+import core.board.Board;
+import core.board.PieceColor;
+import core.game.GameResult;
+import core.game.Move;
+import core.player.Player;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * 局面语料：带对局结果的局面，供离线调参(TexelTuner)使用
+ * 文件头 8 字节：魔数 "C6PC" 与版本号。其后每个局面一条 93 字节的定长记录：
+ * 361 格每格 2 位(取值 BLACK/WHITE/EMPTY，与 BatchEvaluator 的编号一致，共 91 字节)、
+ * 轮到谁走(BLACK/WHITE)、对局结果(从轮到走的一方看：胜 2、和 1、负 0，与 Duel 的记法一致)。
+ * 定长记录可按下标直接定位；读取时把文件分段映射到内存(单段映射不能超过 2GB)。
+ * 一局棋从开局(天元一子，白方走)起，每一步之前的局面各记一条，终局局面不记。
+ */
+public final class PositionCorpus {
+
+    public static final int BLACK = 0;
+    public static final int WHITE = 1;
+    public static final int EMPTY = 2;
+    public static final int CELLS = 361;
+
+    private static final int MAGIC = 0x43365043; // "C6PC"
+    private static final int VERSION = 1;
+    private static final int HEADER = 8;
+    private static final int BOARD_BYTES = (CELLS + 3) / 4;
+    private static final int RECORD = BOARD_BYTES + 2;
+    private static final int SEGMENT_RECORDS = Integer.MAX_VALUE / RECORD;
+
+    private PositionCorpus() {
+    }
+
+    /**
+     * 用法：PositionCorpus 输出文件 每组对数 棋手类名...
+     * 所给棋手两两交换先后手各下若干对，全部局面追加到输出文件
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 4) {
+            System.out.println("usage: PositionCorpus <file> <pairsPerPairing> <player class> <player class>...");
+            return;
+        }
+        int pairs = Integer.parseInt(args[1]);
+        List<Supplier<? extends Player>> players = new ArrayList<>();
+        for (int i = 2; i < args.length; i++) players.add(Duel.factory(args[i]));
+        try (Writer writer = new Writer(Paths.get(args[0]))) {
+            for (int p = 0; p < pairs; p++) {
+                for (int i = 0; i < players.size(); i++) {
+                    for (int j = i + 1; j < players.size(); j++) {
+                        writer.addGame(Duel.game(players.get(i).get(), players.get(j).get()));
+                        writer.addGame(Duel.game(players.get(j).get(), players.get(i).get()));
+                    }
+                }
+                System.out.printf("第 %d 组完成，共 %d 个局面%n", p + 1, writer.size());
+            }
+        }
+    }
+
+    /**
+     * 追加写入。文件不存在或为空时写文件头，否则校验文件头后接着写
+     */
+    public static final class Writer implements Closeable {
+
+        private final OutputStream out;
+        private final byte[] record = new byte[RECORD];
+        private long size;
+
+        public Writer(Path file) throws IOException {
+            long length = Files.exists(file) ? Files.size(file) : 0;
+            if (length > 0) {
+                try (Reader existing = new Reader(file)) {
+                    size = existing.size();
+                }
+                if (length != HEADER + size * RECORD) throw new IOException("truncated corpus record in " + file);
+            }
+            out = new BufferedOutputStream(Files.newOutputStream(file,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND), 1 << 16);
+            if (length == 0) {
+                out.write(ByteBuffer.allocate(HEADER).putInt(MAGIC).putInt(VERSION).array());
+            }
+        }
+
+        /** 已有的局面数(含本次写入) */
+        public long size() {
+            return size;
+        }
+
+        /**
+         * 追加一个局面；cells 为 361 格的 BLACK/WHITE/EMPTY
+         */
+        public void add(int[] cells, int sideToMove, int result) throws IOException {
+            if (sideToMove != BLACK && sideToMove != WHITE) throw new IllegalArgumentException("bad side to move: " + sideToMove);
+            if (result < Duel.LOSS || result > Duel.WIN) throw new IllegalArgumentException("bad result: " + result);
+            Arrays.fill(record, (byte) 0);
+            for (int i = 0; i < CELLS; i++) {
+                record[i >> 2] |= (byte) (cells[i] << ((i & 3) << 1));
+            }
+            record[BOARD_BYTES] = (byte) sideToMove;
+            record[BOARD_BYTES + 1] = (byte) result;
+            out.write(record);
+            size++;
+        }
+
+        /**
+         * 复盘一局棋，追加每一步之前的局面
+         */
+        public void addGame(GameResult game) throws IOException {
+            // 开局黑子已在天元，框架的 first 执白先走，second 执黑
+            int blackScore = game.score(game.getSecond().name());
+            Board board = new Board();
+            int[] cells = new int[CELLS];
+            for (Move move : Duel.moves(game)) {
+                if (board.gameOver() || !board.legalMove(move)) break;
+                for (int i = 0; i < CELLS; i++) cells[i] = code(board.get(i));
+                int side = board.whoseMove() == PieceColor.BLACK ? BLACK : WHITE;
+                add(cells, side, side == BLACK ? blackScore : Duel.WIN - blackScore);
+                board.makeMove(move);
+            }
+        }
+
+        private static int code(PieceColor color) {
+            return color == PieceColor.BLACK ? BLACK : color == PieceColor.WHITE ? WHITE : EMPTY;
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
+    /**
+     * 内存映射读取。只读，多线程可以同时读
+     */
+    public static final class Reader implements Closeable {
+
+        private final FileChannel channel;
+        private final MappedByteBuffer[] segments;
+        private final long size;
+
+        public Reader(Path file) throws IOException {
+            channel = FileChannel.open(file, StandardOpenOption.READ);
+            try {
+                long length = channel.size();
+                ByteBuffer header = ByteBuffer.allocate(HEADER);
+                if (length >= HEADER) channel.read(header, 0);
+                header.flip();
+                if (header.remaining() < HEADER || header.getInt() != MAGIC) throw new IOException("not a position corpus: " + file);
+                int version = header.getInt();
+                if (version != VERSION) throw new IOException("unsupported corpus version " + version + " in " + file);
+                size = (length - HEADER) / RECORD;
+                int count = (int) ((size + SEGMENT_RECORDS - 1) / SEGMENT_RECORDS);
+                segments = new MappedByteBuffer[count];
+                for (int s = 0; s < count; s++) {
+                    long first = (long) s * SEGMENT_RECORDS;
+                    long records = Math.min(SEGMENT_RECORDS, size - first);
+                    segments[s] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER + first * RECORD, records * RECORD);
+                }
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        public long size() {
+            return size;
+        }
+
+        /**
+         * 把第 index 个局面的 361 格写入 cells
+         */
+        public void cells(long index, int[] cells) {
+            ByteBuffer segment = segments[(int) (index / SEGMENT_RECORDS)];
+            int base = (int) (index % SEGMENT_RECORDS) * RECORD;
+            for (int b = 0; b < BOARD_BYTES; b++) {
+                int packed = segment.get(base + b);
+                int end = Math.min(CELLS, (b + 1) << 2);
+                for (int i = b << 2; i < end; i++, packed >>= 2) cells[i] = packed & 3;
+            }
+        }
+
+        public int sideToMove(long index) {
+            return byteAt(index, BOARD_BYTES);
+        }
+
+        public int result(long index) {
+            return byteAt(index, BOARD_BYTES + 1);
+        }
+
+        private int byteAt(long index, int offset) {
+            ByteBuffer segment = segments[(int) (index / SEGMENT_RECORDS)];
+            return segment.get((int) (index % SEGMENT_RECORDS) * RECORD + offset);
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
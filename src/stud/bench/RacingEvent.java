@@ -0,0 +1,125 @@
+package stud.bench;
+
+import core.match.GameEvent;
+import core.player.Player;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * 竞速赛(successive halving)
+ * carnivalRun 给每对棋手同样多的对局，比较十个参数变体时大部分对局都花在明显较弱的变体上。
+ * 这里把对局总预算平均分给 ceil(log2 n) 轮：每轮在存活者之间打循环赛(每组交换先后手各一局为一对)，
+ * 按本轮得分率淘汰后一半。存活者越少，每组分到的对数越多，对局集中在最强的几个候选之间。
+ * 同一轮内大家面对同一批对手，得分可以直接比较；本轮同分时按累计得分率排序。
+ * 棋手取自 GameEvent 的棋手列表，每局用其克隆(与 Match 相同)，名字必须互不相同。
+ */
+public final class RacingEvent {
+
+    private final String name;
+    private final List<Entry> entries = new ArrayList<>();
+
+    private static final class Entry {
+        final Player player;
+        final Supplier<Player> factory;
+        long roundPoints;
+        long roundGames;
+        long totalPoints;
+        long totalGames;
+        int eliminatedIn = -1;
+
+        Entry(Player player) {
+            this.player = player;
+            this.factory = () -> {
+                try {
+                    return (Player) player.clone();
+                } catch (CloneNotSupportedException e) {
+                    throw new IllegalStateException(e);
+                }
+            };
+        }
+
+        double roundRate() {
+            return roundGames == 0 ? 0 : roundPoints / (2.0 * roundGames);
+        }
+
+        double totalRate() {
+            return totalGames == 0 ? 0 : totalPoints / (2.0 * totalGames);
+        }
+    }
+
+    public RacingEvent(GameEvent event) {
+        this(event.getName(), event.getPlayers());
+    }
+
+    public RacingEvent(String name, List<Player> players) {
+        if (players.size() < 2) throw new IllegalArgumentException("racing needs at least two players");
+        this.name = name;
+        for (Player p : players) entries.add(new Entry(p));
+    }
+
+    /**
+     * 按总预算(对数，每对两局)进行竞速，返回最终排名(冠军在前)。
+     * 每轮至少打一遍完整循环，预算过小时实际对数会略超预算。
+     */
+    public List<Player> run(int budgetPairs) {
+        List<Entry> alive = new ArrayList<>(entries);
+        int rounds = 32 - Integer.numberOfLeadingZeros(alive.size() - 1);
+        int perRound = Math.max(1, budgetPairs / rounds);
+        int played = 0;
+
+        System.out.println("竞速赛 " + name + "：" + alive.size() + " 名棋手，" + rounds + " 轮，预算 " + budgetPairs + " 对");
+        for (int round = 1; alive.size() > 1; round++) {
+            int m = alive.size();
+            int pairings = m * (m - 1) / 2;
+            int repeats = Math.max(1, perRound / pairings);
+            for (Entry e : alive) {
+                e.roundPoints = 0;
+                e.roundGames = 0;
+            }
+
+            for (int r = 0; r < repeats; r++) {
+                for (int i = 0; i < m; i++) {
+                    for (int j = i + 1; j < m; j++) {
+                        playPair(alive.get(i), alive.get(j));
+                        played++;
+                    }
+                }
+            }
+
+            alive.sort(Comparator.comparingDouble(Entry::roundRate).thenComparingDouble(Entry::totalRate).reversed());
+            System.out.printf("第 %d 轮：%d 名存活，每组 %d 对%n", round, m, repeats);
+            for (Entry e : alive) {
+                System.out.printf("  %-28s 本轮 %5.1f%% (%d 局)  累计 %5.1f%% (%d 局)%n", e.player.name(),
+                        100 * e.roundRate(), e.roundGames, 100 * e.totalRate(), e.totalGames);
+            }
+            int keep = (m + 1) / 2;
+            for (int i = keep; i < m; i++) alive.get(i).eliminatedIn = round;
+            alive = new ArrayList<>(alive.subList(0, keep));
+        }
+        System.out.printf("冠军：%s，共 %d 对 %d 局%n", alive.get(0).player.name(), played, 2 * played);
+
+        // 最终排名：越晚被淘汰越靠前，同一轮淘汰的按累计得分率
+        List<Entry> ranking = new ArrayList<>(entries);
+        ranking.sort(Comparator.comparingInt((Entry e) -> e.eliminatedIn < 0 ? Integer.MAX_VALUE : e.eliminatedIn)
+                .thenComparingDouble(Entry::totalRate).reversed());
+        List<Player> result = new ArrayList<>();
+        for (Entry e : ranking) result.add(e.player);
+        return result;
+    }
+
+    private void playPair(Entry a, Entry b) {
+        int[] scores = Duel.pair(a.factory, b.factory);
+        int points = scores[0] + scores[1];
+        a.roundPoints += points;
+        b.roundPoints += 2 * Duel.WIN - points;
+        a.roundGames += 2;
+        b.roundGames += 2;
+        a.totalPoints += points;
+        b.totalPoints += 2 * Duel.WIN - points;
+        a.totalGames += 2;
+        b.totalGames += 2;
+    }
+}
@@ -0,0 +1,166 @@
+package stud.bench;
+
+/**
+ * 序贯概率比检验(SPRT)
+ * H0：candidate 比 baseline 强 elo0；H1：强 elo1(Elo 按 logistic 模型)。
+ * 以交换先后手的一对对局为一个样本，得分 0..4 分为五档(pentanomial)，先后手优势在对内抵消，方差也更小。
+ * 对数似然比用正态近似：LLR = N (s1 - s0)(2m - s0 - s1) / (2σ²)，m、σ² 为每对平均得分率的样本均值与方差，
+ * s0、s1 为 elo0、elo1 对应的期望得分率。LLR 越过 ln((1-β)/α) 接受 H1，低于 ln(β/(1-α)) 接受 H0。
+ * 计算 LLR 时五档各加 PSEUDO_COUNT 对(伪计数)：否则 candidate 每对全胜、或双方都是确定性引擎每对同分时
+ * 样本方差为 0，LLR 无从计算，检验会一直下到对数上限；伪计数也使头几对的方差不至于小到一两对就下结论。
+ */
+public final class Sprt {
+
+    public enum Status {CONTINUE, ACCEPT_H0, ACCEPT_H1}
+
+    private static final double PSEUDO_COUNT = 0.5;
+
+    private final double elo0;
+    private final double elo1;
+    private final double lower;
+    private final double upper;
+
+    // 每对得分 0..4 的对数
+    private final long[] pairs = new long[5];
+    // 单局胜和负(candidate 视角)
+    private long wins;
+    private long draws;
+    private long losses;
+
+    public Sprt(double elo0, double elo1, double alpha, double beta) {
+        if (elo1 <= elo0) throw new IllegalArgumentException("elo1 must be greater than elo0");
+        if (alpha <= 0 || alpha >= 1 || beta <= 0 || beta >= 1) {
+            throw new IllegalArgumentException("alpha and beta must be in (0, 1)");
+        }
+        this.elo0 = elo0;
+        this.elo1 = elo1;
+        this.lower = Math.log(beta / (1 - alpha));
+        this.upper = Math.log((1 - beta) / alpha);
+    }
+
+    /**
+     * 记录一对对局
+     *
+     * @param asFirst  candidate 先手局得分(0/1/2)
+     * @param asSecond candidate 后手局得分(0/1/2)
+     */
+    public void add(int asFirst, int asSecond) {
+        pairs[asFirst + asSecond]++;
+        count(asFirst);
+        count(asSecond);
+    }
+
+    private void count(int score) {
+        if (score == Duel.WIN) wins++;
+        else if (score == Duel.DRAW) draws++;
+        else losses++;
+    }
+
+    public long pairCount() {
+        return pairs[0] + pairs[1] + pairs[2] + pairs[3] + pairs[4];
+    }
+
+    public long wins() {
+        return wins;
+    }
+
+    public long draws() {
+        return draws;
+    }
+
+    public long losses() {
+        return losses;
+    }
+
+    /**
+     * 每对平均得分率
+     */
+    public double mean() {
+        long n = pairCount();
+        if (n == 0) return 0.5;
+        double sum = 0;
+        for (int k = 0; k < 5; k++) sum += pairs[k] * (k / 4.0);
+        return sum / n;
+    }
+
+    /**
+     * 每对得分率的样本方差
+     */
+    public double variance() {
+        long n = pairCount();
+        if (n == 0) return 0;
+        double m = mean(), sum = 0;
+        for (int k = 0; k < 5; k++) sum += pairs[k] * (k / 4.0 - m) * (k / 4.0 - m);
+        return sum / n;
+    }
+
+    public double llr() {
+        long n = pairCount();
+        if (n == 0) return 0;
+        double[] counts = new double[5];
+        double total = 0, m = 0;
+        for (int k = 0; k < 5; k++) {
+            counts[k] = pairs[k] + PSEUDO_COUNT;
+            total += counts[k];
+            m += counts[k] * (k / 4.0);
+        }
+        m /= total;
+        double var = 0;
+        for (int k = 0; k < 5; k++) var += counts[k] * (k / 4.0 - m) * (k / 4.0 - m);
+        var /= total;
+        double s0 = expectedScore(elo0), s1 = expectedScore(elo1);
+        return n * (s1 - s0) * (2 * m - s0 - s1) / (2 * var);
+    }
+
+    public Status status() {
+        double llr = llr();
+        if (llr >= upper) return Status.ACCEPT_H1;
+        if (llr <= lower) return Status.ACCEPT_H0;
+        return Status.CONTINUE;
+    }
+
+    public double lowerBound() {
+        return lower;
+    }
+
+    public double upperBound() {
+        return upper;
+    }
+
+    /**
+     * Elo 差的估计
+     */
+    public double elo() {
+        return eloOf(mean());
+    }
+
+    /**
+     * Elo 差的 95% 置信区间 {下限, 上限}
+     */
+    public double[] eloInterval() {
+        long n = pairCount();
+        if (n == 0) return new double[]{Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY};
+        double margin = 1.959964 * Math.sqrt(variance() / n);
+        return new double[]{eloOf(mean() - margin), eloOf(mean() + margin)};
+    }
+
+    static double expectedScore(double elo) {
+        return 1 / (1 + Math.pow(10, -elo / 400));
+    }
+
+    static double eloOf(double score) {
+        if (score <= 0) return Double.NEGATIVE_INFINITY;
+        if (score >= 1) return Double.POSITIVE_INFINITY;
+        return -400 * Math.log10(1 / score - 1);
+    }
+
+    @Override
+    public String toString() {
+        double[] interval = eloInterval();
+        double elo = elo();
+        return String.format("对数=%d 胜/和/负=%d/%d/%d 五档=[%d %d %d %d %d] Elo=%.1f ±%.1f [%.1f, %.1f] LLR=%.2f (%.2f, %.2f) %s",
+                pairCount(), wins, draws, losses, pairs[0], pairs[1], pairs[2], pairs[3], pairs[4],
+                elo, (interval[1] - interval[0]) / 2, interval[0], interval[1],
+                llr(), lower, upper, status());
+    }
+}
@@ -0,0 +1,61 @@
+package stud.bench;
+
+import core.player.Player;
+
+import java.util.function.Supplier;
+
+/**
+ * SPRT 早停对抗赛
+ * candidate 与 baseline 成对下棋(先后手各一局)，每对之后更新 SPRT，接受 H0 或 H1 即停止，
+ * 达到对数上限仍未决出时报告"未决"。验证一次改动所需的对局数随实际强弱差自适应。
+ * 常用设置：判断 candidate 是否有进步用 elo0 = 0、elo1 = 10~30；α = β = 0.05。
+ */
+public final class SprtMatch {
+
+    private final Supplier<? extends Player> candidate;
+    private final Supplier<? extends Player> baseline;
+    private final Sprt sprt;
+    private final int maxPairs;
+
+    public SprtMatch(Supplier<? extends Player> candidate, Supplier<? extends Player> baseline,
+                     double elo0, double elo1, double alpha, double beta, int maxPairs) {
+        this.candidate = candidate;
+        this.baseline = baseline;
+        this.sprt = new Sprt(elo0, elo1, alpha, beta);
+        this.maxPairs = maxPairs;
+    }
+
+    public SprtMatch(Supplier<? extends Player> candidate, Supplier<? extends Player> baseline,
+                     double elo0, double elo1) {
+        this(candidate, baseline, elo0, elo1, 0.05, 0.05, 2000);
+    }
+
+    /**
+     * 用法：SprtMatch candidate类名 baseline类名 [elo0 elo1 [maxPairs]]
+     */
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.out.println("usage: SprtMatch <candidate class> <baseline class> [elo0 elo1 [maxPairs]]");
+            return;
+        }
+        double elo0 = args.length > 3 ? Double.parseDouble(args[2]) : 0;
+        double elo1 = args.length > 3 ? Double.parseDouble(args[3]) : 20;
+        int maxPairs = args.length > 4 ? Integer.parseInt(args[4]) : 2000;
+        new SprtMatch(Duel.factory(args[0]), Duel.factory(args[1]), elo0, elo1, 0.05, 0.05, maxPairs).run();
+    }
+
+    /**
+     * 下到得出结论或达到对数上限，返回检验结果
+     */
+    public Sprt run() {
+        String title = candidate.get().name() + " vs " + baseline.get().name();
+        System.out.println("SPRT " + title);
+        while (sprt.status() == Sprt.Status.CONTINUE && sprt.pairCount() < maxPairs) {
+            int[] scores = Duel.pair(candidate, baseline);
+            sprt.add(scores[0], scores[1]);
+            System.out.println(sprt);
+        }
+        System.out.println(sprt.status() == Sprt.Status.CONTINUE ? "未决(达到对数上限)" : "结论: " + sprt.status());
+        return sprt;
+    }
+}
@@ -0,0 +1,208 @@
+package stud.bench;
+
+import stud.v4.Params;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * V4 参数的 SPSA 调参
+ * 每次迭代对整个参数向量做一次随机 ±1 扰动，得到 θ+ 与 θ- 两个 V4 变体，
+ * 让它们成对自弈(交换先后手)若干对，θ+ 的得分率 s 给出 f(θ+) - f(θ-) = 2s - 1，
+ * 一次估计出全部维度的梯度并沿其更新。增益按标准取法：a_k = a / (k + 1 + A)^0.602，c_k = c / (k + 1)^0.101。
+ * 计算在归一化坐标(参数除以 Params.SCALE)中进行，各维的扰动幅度相当。
+ * 每次迭代的对局并发分配到所有核心；迭代结束即写检查点(原子替换)并追加轨迹，中断后重新运行从检查点继续。
+ * 输出目录：state.properties(检查点)、trajectory.csv(每次迭代的得分与参数)、current.params(可直接给 V4 使用的参数文件)。
+ */
+public final class SpsaTuner {
+
+    private static final double ALPHA = 0.602;
+    private static final double GAMMA = 0.101;
+    // 每隔这么多次迭代检查一次 V4 状态池数：每组参数一个池，旧参数的棋手回收后池应随之回收，
+    // GC 之后仍多于 MAX_LIVE_POOLS 说明有东西留住了旧参数，长时间调参会耗尽内存
+    private static final int POOL_CHECK_INTERVAL = 10;
+    private static final int MAX_LIVE_POOLS = 8;
+
+    private final Path dir;
+    private final Params base;
+    private final int pairsPerIteration;
+    private final int threads;
+    private final double a;
+    private final double c;
+    private final double stability;
+    private final long seed;
+
+    private int iteration;
+    private double[] u;   // 归一化坐标
+
+    public SpsaTuner(Path dir, Params base, int pairsPerIteration, int threads,
+                     double a, double c, double stability, long seed) {
+        this.dir = dir;
+        this.base = base;
+        this.pairsPerIteration = pairsPerIteration;
+        this.threads = threads;
+        this.a = a;
+        this.c = c;
+        this.stability = stability;
+        this.seed = seed;
+    }
+
+    /**
+     * 用法：SpsaTuner 输出目录 [迭代数 [每次迭代对数 [线程数]]]
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 1) {
+            System.out.println("usage: SpsaTuner <dir> [iterations [pairsPerIteration [threads]]]");
+            return;
+        }
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int pairs = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        SpsaTuner tuner = new SpsaTuner(Paths.get(args[0]), Params.configured(), pairs, threads,
+                1.0, 1.0, iterations / 10.0, 20240601L);
+        tuner.run(iterations);
+    }
+
+    /**
+     * 从检查点(若有)继续，迭代到第 iterations 次为止，返回最终参数
+     */
+    public Params run(int iterations) throws IOException, InterruptedException {
+        Files.createDirectories(dir);
+        resume();
+        System.out.printf("SPSA：从第 %d 次迭代开始，共 %d 次，每次 %d 对，%d 线程%n",
+                iteration, iterations, pairsPerIteration, threads);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            while (iteration < iterations) {
+                step(pool);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return current();
+    }
+
+    private void step(ExecutorService pool) throws IOException, InterruptedException {
+        int k = iteration;
+        double ak = a / Math.pow(k + 1 + stability, ALPHA);
+        double ck = c / Math.pow(k + 1, GAMMA);
+
+        // 每次迭代的扰动由种子与迭代号决定，恢复后重跑同一迭代得到同样的扰动
+        Random random = new Random(seed + k);
+        double[] delta = new double[Params.DIMENSIONS];
+        double[] plus = new double[Params.DIMENSIONS];
+        double[] minus = new double[Params.DIMENSIONS];
+        for (int i = 0; i < delta.length; i++) {
+            delta[i] = random.nextBoolean() ? 1 : -1;
+            plus[i] = (u[i] + ck * delta[i]) * Params.SCALE[i];
+            minus[i] = (u[i] - ck * delta[i]) * Params.SCALE[i];
+        }
+        Params plusParams = base.withVector(plus);
+        Params minusParams = base.withVector(minus);
+
+        List<Future<int[]>> games = new ArrayList<>();
+        for (int p = 0; p < pairsPerIteration; p++) {
+            games.add(pool.submit(() -> Duel.pair(
+                    () -> new stud.v4.AI(plusParams, "plus"),
+                    () -> new stud.v4.AI(minusParams, "minus"))));
+        }
+        long points = 0;
+        for (Future<int[]> game : games) {
+            try {
+                int[] scores = game.get();
+                points += scores[0] + scores[1];
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("self-play game failed", e.getCause());
+            }
+        }
+        double score = points / (4.0 * pairsPerIteration);
+
+        // f(θ+) - f(θ-) = 2s - 1
+        double diff = 2 * score - 1;
+        for (int i = 0; i < u.length; i++) {
+            u[i] += ak * diff / (2 * ck * delta[i]);
+            u[i] = Params.clamp(u[i] * Params.SCALE[i], i) / Params.SCALE[i];
+        }
+        iteration++;
+        checkpoint(score, ak, ck);
+        System.out.printf("迭代 %d：θ+ 得分率 %.3f，a_k=%.4f c_k=%.4f  %s%n", k, score, ak, ck, current());
+        if (iteration % POOL_CHECK_INTERVAL == 0) checkPools();
+    }
+
+    private static void checkPools() {
+        System.gc();
+        int pools = stud.v4.AI.pools();
+        if (pools > MAX_LIVE_POOLS) {
+            System.out.println("警告：V4 状态池有 " + pools + " 个，旧参数没有被回收");
+        }
+    }
+
+    private Params current() {
+        double[] theta = new double[u.length];
+        for (int i = 0; i < u.length; i++) theta[i] = u[i] * Params.SCALE[i];
+        return base.withVector(theta);
+    }
+
+    // ==================== 检查点 ====================
+
+    private void resume() throws IOException {
+        Path state = dir.resolve("state.properties");
+        double[] theta = base.toVector();
+        iteration = 0;
+        if (Files.exists(state)) {
+            Properties props = new Properties();
+            try (Reader in = Files.newBufferedReader(state, StandardCharsets.UTF_8)) {
+                props.load(in);
+            }
+            iteration = Integer.parseInt(props.getProperty("iteration"));
+            String[] values = props.getProperty("theta").split(",");
+            if (values.length != theta.length) {
+                throw new IOException("checkpoint has " + values.length + " dimensions, expected " + theta.length);
+            }
+            for (int i = 0; i < theta.length; i++) theta[i] = Double.parseDouble(values[i]);
+        }
+        u = new double[theta.length];
+        for (int i = 0; i < theta.length; i++) u[i] = theta[i] / Params.SCALE[i];
+    }
+
+    private void checkpoint(double score, double ak, double ck) throws IOException {
+        StringBuilder theta = new StringBuilder();
+        for (int i = 0; i < u.length; i++) {
+            if (i > 0) theta.append(',');
+            theta.append(u[i] * Params.SCALE[i]);
+        }
+
+        // 先写临时文件再原子替换，中断时检查点要么是旧的要么是新的
+        Path state = dir.resolve("state.properties");
+        Path temp = dir.resolve("state.properties.tmp");
+        try (Writer out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            out.write("iteration=" + iteration + "\n");
+            out.write("theta=" + theta + "\n");
+        }
+        Files.move(temp, state, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        Files.write(dir.resolve("trajectory.csv"),
+                (iteration + "," + score + "," + ak + "," + ck + "," + theta + "\n").getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+
+        Path params = dir.resolve("current.params");
+        Path paramsTemp = dir.resolve("current.params.tmp");
+        current().save(paramsTemp);
+        Files.move(paramsTemp, params, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
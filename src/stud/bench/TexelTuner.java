@@ -0,0 +1,294 @@
+package stud.bench;
+
+import stud.common.BatchEvaluator;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * V3 棋型分数的 Texel 式批量调参
+ * V3 给空格打分：每个方向按 (连子数, 两端空位数) 查 SCORE_* 表，进攻分乘 ATTACK_WEIGHT 后加上防守分。
+ * 这里把同样的打分用到整盘：局面评估 = Σ_c w_c (β·S_c - O_c)，
+ * S_c/O_c 为轮到走的一方/对手在全部空格、全部方向上形成第 c 类棋型的次数，β 即 ATTACK_WEIGHT。
+ * 用 P = σ(K·评估) 预测轮到走的一方的得分(胜 1、和 0.5、负 0)，在语料上最小化对数损失：
+ * 先按默认分数拟合 K，再固定 K，用 Adam 在对数空间做全批量梯度下降(权重跨好几个数量级)。
+ * 特征由 BatchEvaluator.census 从内存映射的语料中并行提取，之后常驻内存(每个局面 16 个 short)；
+ * 每轮的损失与梯度用 fork/join 分块求和。结果写成 V3 可用 -Dstud.v3.weights 读取的权重文件。
+ * SCORE_BLOCK_WIN、SCORE_BLOCK_5 在 V3 中没有使用，不参与调参；死四、死三记 0 分，其余方向记 1 分，均不调。
+ */
+public final class TexelTuner {
+
+    private static final String[] NAMES = {
+            "SCORE_WIN", "SCORE_MAKE_5", "SCORE_LIVE_4", "SCORE_RUSH_4", "SCORE_LIVE_3", "SCORE_SLEEP_3", "SCORE_LIVE_2"};
+    private static final double[] DEFAULTS = {100000000, 10000000, 1000000, 50000, 5000, 500, 100};
+    private static final double DEFAULT_ATTACK = 1.2;
+
+    // 第 CLASSES 类为记 1 分的其余方向，权重固定
+    private static final int CLASSES = NAMES.length;
+    private static final int FEATURES = 2 * (CLASSES + 1);
+    // 参数：CLASSES 个 ln(w)，最后一个为 ln(β)
+    private static final int PARAMS = CLASSES + 1;
+
+    // V3 的单点分是四个方向之和(int)，单项不超过 2e8 时不会溢出
+    private static final double MAX_WEIGHT = Math.log(200000000);
+    private static final double MIN_ATTACK = Math.log(0.1);
+    private static final double MAX_ATTACK = Math.log(5);
+    private static final int THRESHOLD = 4096;
+
+    private final short[] features;
+    private final double[] targets;
+    private final int size;
+
+    private TexelTuner(short[] features, double[] targets) {
+        this.features = features;
+        this.targets = targets;
+        this.size = targets.length;
+    }
+
+    /**
+     * 用法：TexelTuner 语料文件 输出权重文件 [轮数 [学习率]]
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("usage: TexelTuner <corpus> <weights out> [epochs [learningRate]]");
+            return;
+        }
+        int epochs = args.length > 2 ? Integer.parseInt(args[2]) : 300;
+        double rate = args.length > 3 ? Double.parseDouble(args[3]) : 0.05;
+        TexelTuner tuner = load(Paths.get(args[0]));
+        double[] theta = tuner.tune(epochs, rate);
+        save(theta, Paths.get(args[1]));
+        System.out.println("权重已写入 " + args[1]);
+    }
+
+    /**
+     * 从语料提取特征
+     */
+    public static TexelTuner load(Path corpus) throws IOException {
+        try (PositionCorpus.Reader reader = new PositionCorpus.Reader(corpus)) {
+            if (reader.size() == 0) throw new IllegalArgumentException("empty corpus: " + corpus);
+            if (reader.size() > Integer.MAX_VALUE / FEATURES) throw new IllegalArgumentException("corpus too large: " + reader.size());
+            int n = (int) reader.size();
+            short[] features = new short[n * FEATURES];
+            double[] targets = new double[n];
+            long start = System.nanoTime();
+            ForkJoinPool.commonPool().invoke(new Extract(reader, features, targets, 0, n));
+            System.out.printf("提取 %d 个局面的特征，用时 %.1f 秒%n", n, (System.nanoTime() - start) / 1e9);
+            return new TexelTuner(features, targets);
+        }
+    }
+
+    private static final class Extract extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final PositionCorpus.Reader reader;
+        private final short[] features;
+        private final double[] targets;
+        private final int from;
+        private final int to;
+
+        Extract(PositionCorpus.Reader reader, short[] features, double[] targets, int from, int to) {
+            this.reader = reader;
+            this.features = features;
+            this.targets = targets;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > THRESHOLD) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new Extract(reader, features, targets, from, mid),
+                        new Extract(reader, features, targets, mid, to));
+                return;
+            }
+            BatchEvaluator evaluator = new BatchEvaluator();
+            int[] cells = new int[PositionCorpus.CELLS];
+            long[][] counts = new long[BatchEvaluator.MAX_COUNT + 1][3];
+            for (int i = from; i < to; i++) {
+                reader.cells(i, cells);
+                evaluator.clear();
+                for (int cell = 0; cell < cells.length; cell++) {
+                    if (cells[cell] != PositionCorpus.EMPTY) evaluator.set(cell, cells[cell]);
+                }
+                int side = reader.sideToMove(i);
+                census(evaluator, side, counts, features, i * FEATURES);
+                census(evaluator, 1 - side, counts, features, i * FEATURES + CLASSES + 1);
+                targets[i] = reader.result(i) / (double) Duel.WIN;
+            }
+        }
+    }
+
+    // 按 V3 evaluateDirection 的分支把 (count, openEnds) 归类
+    private static void census(BatchEvaluator evaluator, int player, long[][] counts, short[] out, int offset) {
+        for (long[] row : counts) Arrays.fill(row, 0);
+        evaluator.census(player, counts);
+        long[] c = new long[CLASSES + 1];
+        for (int open = 0; open < 3; open++) c[0] += counts[6][open];
+        for (int open = 0; open < 3; open++) c[1] += counts[5][open];
+        c[2] = counts[4][2];
+        c[3] = counts[4][1];
+        c[4] = counts[3][2];
+        c[5] = counts[3][1];
+        c[6] = counts[2][2];
+        c[CLASSES] = counts[1][0] + counts[1][1] + counts[1][2] + counts[2][0] + counts[2][1];
+        for (int k = 0; k <= CLASSES; k++) out[offset + k] = (short) c[k];
+    }
+
+    // ==================== 拟合 ====================
+
+    /**
+     * 拟合 K 后做 epochs 轮 Adam，返回参数(ln w 与 ln β)
+     */
+    public double[] tune(int epochs, double rate) {
+        double[] theta = new double[PARAMS];
+        for (int c = 0; c < CLASSES; c++) theta[c] = Math.log(DEFAULTS[c]);
+        theta[CLASSES] = Math.log(DEFAULT_ATTACK);
+        double logK = fitScale(theta);
+        double k = Math.exp(logK);
+        System.out.printf("K = %.3e，默认分数的损失 %.6f%n", k, evaluate(theta, k)[0]);
+
+        double[] m = new double[PARAMS];
+        double[] v = new double[PARAMS];
+        double beta1 = 0.9, beta2 = 0.999;
+        for (int epoch = 1; epoch <= epochs; epoch++) {
+            double[] result = evaluate(theta, k);
+            for (int p = 0; p < PARAMS; p++) {
+                double g = result[p + 1];
+                m[p] = beta1 * m[p] + (1 - beta1) * g;
+                v[p] = beta2 * v[p] + (1 - beta2) * g * g;
+                double mHat = m[p] / (1 - Math.pow(beta1, epoch));
+                double vHat = v[p] / (1 - Math.pow(beta2, epoch));
+                theta[p] -= rate * mHat / (Math.sqrt(vHat) + 1e-12);
+            }
+            clamp(theta);
+            if (epoch % 20 == 0 || epoch == epochs) {
+                System.out.printf("第 %d 轮 损失 %.6f  %s%n", epoch, result[0], describe(theta));
+            }
+        }
+        System.out.printf("最终损失 %.6f%n", evaluate(theta, k)[0]);
+        return theta;
+    }
+
+    private static void clamp(double[] theta) {
+        for (int c = 0; c < CLASSES; c++) theta[c] = Math.max(0, Math.min(MAX_WEIGHT, theta[c]));
+        theta[CLASSES] = Math.max(MIN_ATTACK, Math.min(MAX_ATTACK, theta[CLASSES]));
+    }
+
+    // 损失对 ln K 是单峰的，黄金分割搜索
+    private double fitScale(double[] theta) {
+        double lo = Math.log(1e-12), hi = 0;
+        double ratio = (Math.sqrt(5) - 1) / 2;
+        double x1 = hi - ratio * (hi - lo), x2 = lo + ratio * (hi - lo);
+        double f1 = evaluate(theta, Math.exp(x1))[0], f2 = evaluate(theta, Math.exp(x2))[0];
+        for (int i = 0; i < 60; i++) {
+            if (f1 < f2) {
+                hi = x2;
+                x2 = x1;
+                f2 = f1;
+                x1 = hi - ratio * (hi - lo);
+                f1 = evaluate(theta, Math.exp(x1))[0];
+            } else {
+                lo = x1;
+                x1 = x2;
+                f1 = f2;
+                x2 = lo + ratio * (hi - lo);
+                f2 = evaluate(theta, Math.exp(x2))[0];
+            }
+        }
+        return (lo + hi) / 2;
+    }
+
+    /**
+     * 返回 {平均损失, 对各参数的梯度...}
+     */
+    private double[] evaluate(double[] theta, double k) {
+        double[] w = new double[CLASSES + 1];
+        for (int c = 0; c < CLASSES; c++) w[c] = Math.exp(theta[c]);
+        w[CLASSES] = 1;
+        double beta = Math.exp(theta[CLASSES]);
+        double[] sum = ForkJoinPool.commonPool().invoke(new Gradient(w, beta, k, 0, size));
+        for (int i = 0; i < sum.length; i++) sum[i] /= size;
+        return sum;
+    }
+
+    private final class Gradient extends RecursiveTask<double[]> {
+        private static final long serialVersionUID = 1L;
+        private final double[] w;
+        private final double beta;
+        private final double k;
+        private final int from;
+        private final int to;
+
+        Gradient(double[] w, double beta, double k, int from, int to) {
+            this.w = w;
+            this.beta = beta;
+            this.k = k;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected double[] compute() {
+            if (to - from > THRESHOLD) {
+                int mid = (from + to) >>> 1;
+                Gradient left = new Gradient(w, beta, k, from, mid);
+                left.fork();
+                double[] right = new Gradient(w, beta, k, mid, to).compute();
+                double[] sum = left.join();
+                for (int i = 0; i < sum.length; i++) sum[i] += right[i];
+                return sum;
+            }
+            double[] sum = new double[PARAMS + 1];
+            for (int i = from; i < to; i++) {
+                int base = i * FEATURES;
+                double self = 0, opponent = 0;
+                for (int c = 0; c <= CLASSES; c++) {
+                    self += w[c] * features[base + c];
+                    opponent += w[c] * features[base + CLASSES + 1 + c];
+                }
+                double p = sigmoid(k * (beta * self - opponent));
+                double r = targets[i];
+                sum[0] -= r * Math.log(Math.max(p, 1e-15)) + (1 - r) * Math.log(Math.max(1 - p, 1e-15));
+
+                // dL/d评估 = K (p - r)；d评估/d ln w_c = w_c (β S_c - O_c)，d评估/d ln β = β Σ w_c S_c
+                double d = k * (p - r);
+                for (int c = 0; c < CLASSES; c++) {
+                    sum[c + 1] += d * w[c] * (beta * features[base + c] - features[base + CLASSES + 1 + c]);
+                }
+                sum[PARAMS] += d * beta * self;
+            }
+            return sum;
+        }
+    }
+
+    private static double sigmoid(double x) {
+        return 1 / (1 + Math.exp(-x));
+    }
+
+    // ==================== 输出 ====================
+
+    private static String describe(double[] theta) {
+        StringBuilder sb = new StringBuilder();
+        for (int c = 0; c < CLASSES; c++) sb.append(NAMES[c]).append('=').append(Math.round(Math.exp(theta[c]))).append(' ');
+        return sb.append(String.format("ATTACK_WEIGHT=%.3f", Math.exp(theta[CLASSES]))).toString();
+    }
+
+    private static void save(double[] theta, Path file) throws IOException {
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("# V3 weights\n");
+            for (int c = 0; c < CLASSES; c++) {
+                out.write(NAMES[c] + "=" + Math.max(1, Math.round(Math.exp(theta[c]))) + "\n");
+            }
+            out.write("ATTACK_WEIGHT=" + Math.exp(theta[CLASSES]) + "\n");
+        }
+    }
+}
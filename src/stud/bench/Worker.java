@@ -0,0 +1,82 @@
+package stud.bench;
+
+import core.player.Player;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 分布式比赛的工作进程
+ * 连上 Coordinator 后循环：领一局(两名棋手的类名，前者先走)、无界面下完、把对局记录发回，直到收到 DONE。
+ * 每个线程一条连接、同时只下一局；一台机器上可以开多个工作进程，也可以在别的机器上连同一个 Coordinator。
+ * 棋手按本进程的 -Dstud.* 系统属性设置，须与 Coordinator 的相同(本机由 Coordinator 启动的工作进程自动继承)。
+ * 协议见 Coordinator。
+ */
+public final class Worker implements Runnable {
+
+    private final String host;
+    private final int port;
+    private final String name;
+
+    public Worker(String host, int port, String name) {
+        this.host = host;
+        this.port = port;
+        this.name = name;
+    }
+
+    /**
+     * 用法：Worker 主机 端口 [线程数]
+     */
+    public static void main(String[] args) throws InterruptedException {
+        if (args.length < 2) {
+            System.out.println("usage: Worker <host> <port> [threads]");
+            return;
+        }
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+        String process = ManagementFactory.getRuntimeMXBean().getName();
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread thread = new Thread(new Worker(args[0], Integer.parseInt(args[1]), process + "#" + t));
+            thread.start();
+            workers.add(thread);
+        }
+        for (Thread thread : workers) thread.join();
+        // 框架的计时器等线程可能还在，结束进程
+        System.exit(0);
+    }
+
+    @Override
+    public void run() {
+        try (Socket socket = new Socket(host, port);
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             PrintWriter out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), true)) {
+            out.println(Coordinator.HELLO + " " + name);
+            int games = 0;
+            String line;
+            while ((line = in.readLine()) != null && !line.equals(Coordinator.DONE)) {
+                String[] task = line.split(" ");
+                if (task.length != 4 || !task[0].equals(Coordinator.GAME)) throw new IOException("unexpected message: " + line);
+                try {
+                    Player first = Duel.factory(task[2]).get();
+                    Player second = Duel.factory(task[3]).get();
+                    GameRecord record = Duel.record(first, second);
+                    out.println(Coordinator.RESULT + " " + task[1] + " " + record.encode());
+                    games++;
+                } catch (RuntimeException e) {
+                    out.println(Coordinator.ERROR + " " + task[1] + " " + String.valueOf(e).replace('\n', ' '));
+                }
+            }
+            System.out.println("工作线程 " + name + "：下完 " + games + " 局");
+        } catch (IOException e) {
+            System.out.println("工作线程 " + name + " 与 " + host + ":" + port + " 的连接中断：" + e);
+        }
+    }
+}
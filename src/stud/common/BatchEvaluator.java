@@ -0,0 +1,210 @@
+package stud.common;
+
+import core.board.Board;
+import core.board.PieceColor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 整盘单点棋型批量评估
+ * 单点评估(如 V1 的 evaluateMove、V3 的 evaluatePoint)在每个方向上只看两件事：
+ * 在该空格落子后形成的连子数 count(含自身)，以及连子两端是否为空(openEnds)。
+ * 这里把棋盘按 横/竖/两条斜线 拆成 112 条线，每条线上一方的棋子压成一个 int 的低位(每格一位)，
+ * 用移位与按位与一次算出整条线上所有格子的连子数与两端状态(SWAR，一个 int 相当于 19 条并行通道)，
+ * 再按 pattern[count][openEnds] 查表累加。整盘两种颜色的评估只需几微秒，
+ * 比逐格向四个方向扫描更适合对全部空格排序。
+ * count 超过6按6计(连六以上棋型相同)；每侧最多看5子，更长的连子已经是连六。
+ * 玩家编号 0/1，EMPTY 表示空格；sync(Board) 按 黑 0、白 1 对应。实例不是线程安全的。
+ */
+public final class BatchEvaluator {
+
+    public static final int LENGTH = 19;
+    public static final int TOTAL = LENGTH * LENGTH;
+    public static final int EMPTY = 2;
+    /** 棋型表的行数：count 取 1..6，第 0 行不用 */
+    public static final int MAX_COUNT = 6;
+
+    private static final int REACH = 5;
+    private static final int LINES;
+    private static final int[][] LINE_CELLS;                 // 每条线上按顺序的格子
+    private static final int[] FULL;                          // 每条线的全1掩码
+    private static final int[][] LINE_OF = new int[TOTAL][4]; // 格子在各方向上所在的线
+    private static final int[][] BIT_OF = new int[TOTAL][4];  // 格子在该线上的位
+    private static final int[] ZERO = new int[3];
+
+    static {
+        int[][] dirs = {{0, 1}, {1, 0}, {1, 1}, {1, -1}};
+        List<int[]> lines = new ArrayList<>();
+        for (int d = 0; d < 4; d++) {
+            int dr = dirs[d][0], dc = dirs[d][1];
+            for (int r = 0; r < LENGTH; r++) {
+                for (int c = 0; c < LENGTH; c++) {
+                    // 只从线的起点出发
+                    int pr = r - dr, pc = c - dc;
+                    if (pr >= 0 && pr < LENGTH && pc >= 0 && pc < LENGTH) continue;
+                    int n = 0;
+                    int[] cells = new int[LENGTH];
+                    for (int rr = r, cc = c; rr >= 0 && rr < LENGTH && cc >= 0 && cc < LENGTH; rr += dr, cc += dc) {
+                        int cell = rr * LENGTH + cc;
+                        LINE_OF[cell][d] = lines.size();
+                        BIT_OF[cell][d] = 1 << n;
+                        cells[n++] = cell;
+                    }
+                    lines.add(Arrays.copyOf(cells, n));
+                }
+            }
+        }
+        LINES = lines.size();
+        LINE_CELLS = lines.toArray(new int[0][]);
+        FULL = new int[LINES];
+        for (int l = 0; l < LINES; l++) FULL[l] = (1 << LINE_CELLS[l].length) - 1;
+    }
+
+    private final byte[] stones = new byte[TOTAL];
+    private final int[][] own = new int[2][LINES];
+    private final int[] empty = new int[LINES];
+    // 单条线的掩码，见 lineMasks
+    private final int[] scratch = new int[MAX_COUNT + 3];
+
+    public BatchEvaluator() {
+        clear();
+    }
+
+    /**
+     * 恢复为空棋盘
+     */
+    public void clear() {
+        Arrays.fill(stones, (byte) EMPTY);
+        Arrays.fill(own[0], 0);
+        Arrays.fill(own[1], 0);
+        System.arraycopy(FULL, 0, empty, 0, LINES);
+    }
+
+    /**
+     * 将某格设为 to (0/1/EMPTY)
+     */
+    public void set(int cell, int to) {
+        int from = stones[cell];
+        if (from == to) return;
+        stones[cell] = (byte) to;
+        for (int d = 0; d < 4; d++) {
+            int l = LINE_OF[cell][d], bit = BIT_OF[cell][d];
+            if (from == EMPTY) empty[l] &= ~bit;
+            else own[from][l] &= ~bit;
+            if (to == EMPTY) empty[l] |= bit;
+            else own[to][l] |= bit;
+        }
+    }
+
+    /**
+     * 与框架棋盘同步(黑 0、白 1)，只改动变化的格子
+     */
+    public void sync(Board board) {
+        for (int i = 0; i < TOTAL; i++) {
+            PieceColor c = board.get(i);
+            set(i, c == PieceColor.EMPTY ? EMPTY : c == PieceColor.BLACK ? 0 : 1);
+        }
+    }
+
+    public int stone(int cell) {
+        return stones[cell];
+    }
+
+    /**
+     * 把 player 在每个空格落子的棋型分累加到 out[cell]：四个方向上 pattern[count][openEnds] 之和。
+     * 非空格不累加；调用方负责初始化 out，可对两种颜色用不同的表各调用一次。
+     *
+     * @param pattern 7 行 3 列，pattern[count][openEnds]，count 为 1..6
+     */
+    public void accumulate(int player, int[][] pattern, long[] out) {
+        if (pattern.length != MAX_COUNT + 1) {
+            throw new IllegalArgumentException("pattern must have " + (MAX_COUNT + 1) + " rows");
+        }
+        // count = 1 的分通常与两端无关(孤立的一子)，此时直接给每个空格加4个方向的分，省去逐线访问全部空格
+        int[] single = pattern[1];
+        boolean uniform = single[0] == single[1] && single[1] == single[2];
+        if (uniform && single[0] != 0) {
+            for (int cell = 0; cell < TOTAL; cell++) {
+                if (stones[cell] == EMPTY) out[cell] += 4L * single[0];
+            }
+        }
+
+        int[] mine = own[player];
+        int[] masks = scratch;
+        for (int l = 0; l < LINES; l++) {
+            int e = empty[l];
+            if (e == 0) continue;
+            lineMasks(mine[l], e, FULL[l], masks);
+
+            // 按层累加：先给所有空格加 count = 1 的分，再对 count >= k + 1 的格子加相邻两层之差。
+            // 越高的层格子越少，每次访问只是一次加法，不必逐格拆出 count 与 openEnds
+            int[] cells = LINE_CELLS[l];
+            for (int k = uniform ? 1 : 0; k < MAX_COUNT; k++) {
+                int level = masks[k];
+                if (level == 0) break;
+                int[] upper = pattern[k + 1];
+                int[] lower = k == 0 ? ZERO : pattern[k];
+                spread(level & masks[MAX_COUNT], upper[0] - lower[0], cells, out);
+                spread(level & masks[MAX_COUNT + 1], upper[1] - lower[1], cells, out);
+                spread(level & masks[MAX_COUNT + 2], upper[2] - lower[2], cells, out);
+            }
+        }
+    }
+
+    /**
+     * 统计 player 的棋型分布：counts[count][openEnds] 加上落子后形成该棋型的(空格, 方向)数。
+     * 只做按位与和 bitCount，不逐格访问，适合为大量局面提取特征。
+     * 连六不看两端，counts[6] 只有三列之和有意义。
+     */
+    public void census(int player, long[][] counts) {
+        int[] mine = own[player];
+        int[] masks = scratch;
+        for (int l = 0; l < LINES; l++) {
+            int e = empty[l];
+            if (e == 0) continue;
+            lineMasks(mine[l], e, FULL[l], masks);
+            for (int k = 0; k < MAX_COUNT; k++) {
+                int exact = masks[k] & (k + 1 < MAX_COUNT ? ~masks[k + 1] : -1);
+                if (exact == 0) continue;
+                for (int open = 0; open < 3; open++) {
+                    counts[k + 1][open] += Integer.bitCount(exact & masks[MAX_COUNT + open]);
+                }
+            }
+        }
+    }
+
+    /**
+     * 一条线上的掩码：masks[k] (k = 0..5) 为两侧连子之和 >= k 的空格(即 count >= k + 1)，
+     * masks[6..8] 为两端空位数为 0/1/2 的格子
+     */
+    private static void lineMasks(int o, int e, int full, int[] masks) {
+        // fk：向后 k 格都是己方(前向连子 >= k)；bk 同理向前
+        int f1 = o >>> 1, f2 = f1 & (o >>> 2), f3 = f2 & (o >>> 3), f4 = f3 & (o >>> 4), f5 = f4 & (o >>> 5);
+        int b1 = (o << 1) & full, b2 = b1 & (o << 2), b3 = b2 & (o << 3), b4 = b3 & (o << 4), b5 = b4 & (o << 5);
+
+        // 两端是否为空：连子恰为 k 时看第 k+1 格；连子达到5已是连六，端点无关
+        int openForward = (~f1 & (e >>> 1)) | (f1 & ~f2 & (e >>> 2)) | (f2 & ~f3 & (e >>> 3))
+                | (f3 & ~f4 & (e >>> 4)) | (f4 & ~f5 & (e >>> 5));
+        int openBackward = (~b1 & (e << 1)) | (b1 & ~b2 & (e << 2)) | (b2 & ~b3 & (e << 3))
+                | (b3 & ~b4 & (e << 4)) | (b4 & ~b5 & (e << 5));
+
+        masks[0] = e;
+        masks[1] = e & (f1 | b1);
+        masks[2] = e & (f2 | (f1 & b1) | b2);
+        masks[3] = e & (f3 | (f2 & b1) | (f1 & b2) | b3);
+        masks[4] = e & (f4 | (f3 & b1) | (f2 & b2) | (f1 & b3) | b4);
+        masks[5] = e & (f5 | (f4 & b1) | (f3 & b2) | (f2 & b3) | (f1 & b4) | b5);
+        masks[MAX_COUNT] = full & ~(openForward | openBackward);
+        masks[MAX_COUNT + 1] = openForward ^ openBackward;
+        masks[MAX_COUNT + 2] = openForward & openBackward;
+    }
+
+    private static void spread(int mask, int value, int[] cells, long[] out) {
+        if (value == 0) return;
+        for (int m = mask; m != 0; m &= m - 1) {
+            out[cells[Integer.numberOfTrailingZeros(m)]] += value;
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package stud.common;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * 两子防守求解器(最小命中集)
+ * 对方的"威胁路"指一条连续6格的路上对方已有4子以上且没有我方棋子：对方再下至多两子即连六。
+ * 防守必须让每条威胁路上至少落一个我方棋子，即在威胁路空格上求大小不超过2的命中集。
+ * 棋盘以 6 个 long 的位棋盘表示(格子编号 row * 19 + col)，每条路(取自 WindowTable)预先算好跨越的字与掩码，
+ * 扫描全部 924 条路只需位运算与 bitCount；每个候选格命中的威胁路再压成一个 long，
+ * 两格能否挡住全部威胁只是一次按位或。整盘求解在微秒级，可在搜索的每个节点调用。
+ * 实例只持有复用的临时数组，不是线程安全的。
+ */
+public final class DefenseSolver {
+
+    public static final int LENGTH = 19;
+    public static final int TOTAL = LENGTH * LENGTH;
+    public static final int WORDS = (TOTAL + 63) / 64;
+
+    // 一个格子最多在24条路上，两子最多命中48条，超过即挡不住
+    private static final int MAX_THREATS = 48;
+
+    private static final int COUNT = WindowTable.COUNT;
+    private static final int[][] CELLS = WindowTable.CELLS;
+    private static final int[][] WORD;      // 每条路跨越的字下标
+    private static final long[][] MASK;     // 每条路在对应字上的掩码
+
+    static {
+        WORD = new int[COUNT][];
+        MASK = new long[COUNT][];
+        for (int w = 0; w < COUNT; w++) {
+            long[] full = new long[WORDS];
+            for (int cell : CELLS[w]) full[cell >>> 6] |= 1L << cell;
+            int n = 0;
+            for (long m : full) if (m != 0) n++;
+            WORD[w] = new int[n];
+            MASK[w] = new long[n];
+            n = 0;
+            for (int i = 0; i < WORDS; i++) {
+                if (full[i] == 0) continue;
+                WORD[w][n] = i;
+                MASK[w][n++] = full[i];
+            }
+        }
+    }
+
+    // 当前威胁路的空格(每条至多2个)
+    private final int[][] threatEmpties = new int[MAX_THREATS][2];
+    private final int[] threatEmptyCount = new int[MAX_THREATS];
+    private int threatCount;
+    private boolean overflow;
+
+    // 候选格及其命中的威胁路掩码
+    private final long[] hits = new long[TOTAL];
+    private final int[] candidates = new int[MAX_THREATS * 2];
+    private int candidateCount;
+
+    public static long[] newBits() {
+        return new long[WORDS];
+    }
+
+    public static void set(long[] bits, int cell) {
+        bits[cell >>> 6] |= 1L << cell;
+    }
+
+    public static void unset(long[] bits, int cell) {
+        bits[cell >>> 6] &= ~(1L << cell);
+    }
+
+    public static boolean get(long[] bits, int cell) {
+        return (bits[cell >>> 6] & (1L << cell)) != 0;
+    }
+
+    /**
+     * 求挡住 attacker 全部威胁路的最小落子组合
+     *
+     * @param attacker 进攻方的棋子
+     * @param defender 防守方的棋子
+     * @return 对方无威胁返回 null；两子挡不住返回空列表；
+     * 否则返回全部最小组合，{a, -1} 表示一子即可(第二子自由)，{a, b} 表示必须两子
+     */
+    public List<int[]> solve(long[] attacker, long[] defender) {
+        threatCount = 0;
+        overflow = false;
+        for (int w = 0; w < COUNT; w++) {
+            int[] word = WORD[w];
+            long[] mask = MASK[w];
+            int own = 0;
+            boolean blocked = false;
+            for (int i = 0; i < word.length; i++) {
+                if ((defender[word[i]] & mask[i]) != 0) {
+                    blocked = true;
+                    break;
+                }
+                own += Long.bitCount(attacker[word[i]] & mask[i]);
+            }
+            if (blocked || own < 4) continue;
+            if (threatCount == MAX_THREATS) {
+                overflow = true;
+                break;
+            }
+            int n = 0;
+            for (int cell : CELLS[w]) {
+                if (!get(attacker, cell)) threatEmpties[threatCount][n++] = cell;
+            }
+            threatEmptyCount[threatCount++] = n;
+        }
+        return hittingSets();
+    }
+
+    /**
+     * 已知威胁路空格时直接求命中集(供自行维护威胁路的调用方使用)，返回值同 solve
+     *
+     * @param empties 每条威胁路的空格，empties[i] 的前 counts[i] 个有效
+     */
+    public List<int[]> solve(int[][] empties, int[] counts, int n) {
+        overflow = n > MAX_THREATS;
+        threatCount = Math.min(n, MAX_THREATS);
+        for (int i = 0; i < threatCount; i++) {
+            threatEmptyCount[i] = Math.min(counts[i], 2);
+            for (int k = 0; k < threatEmptyCount[i]; k++) threatEmpties[i][k] = empties[i][k];
+        }
+        return hittingSets();
+    }
+
+    private List<int[]> hittingSets() {
+        if (threatCount == 0) return null;
+        List<int[]> result = new ArrayList<>();
+        if (overflow) return result;
+
+        // 每个候选格命中哪些威胁路
+        candidateCount = 0;
+        for (int t = 0; t < threatCount; t++) {
+            for (int k = 0; k < threatEmptyCount[t]; k++) {
+                int cell = threatEmpties[t][k];
+                if (hits[cell] == 0) candidates[candidateCount++] = cell;
+                hits[cell] |= 1L << t;
+            }
+        }
+        long full = threatCount == 64 ? -1L : (1L << threatCount) - 1;
+
+        // 一子可挡
+        for (int k = 0; k < threatEmptyCount[0]; k++) {
+            int a = threatEmpties[0][k];
+            if (hits[a] == full) result.add(new int[]{a, -1});
+        }
+        // 两子：其中一子必在第一条威胁路上
+        if (result.isEmpty()) {
+            for (int k = 0; k < threatEmptyCount[0]; k++) {
+                int a = threatEmpties[0][k];
+                for (int i = 0; i < candidateCount; i++) {
+                    int b = candidates[i];
+                    if (b == a || (hits[a] | hits[b]) != full) continue;
+                    // 两格都在第一条路上时只记一次
+                    if ((hits[b] & 1L) != 0 && b < a) continue;
+                    result.add(new int[]{a, b});
+                }
+            }
+        }
+        for (int i = 0; i < candidateCount; i++) hits[candidates[i]] = 0;
+        return result;
+    }
+
+    /**
+     * 上一次求解找到的威胁路数
+     */
+    public int threatCount() {
+        return threatCount;
+    }
+
+    /**
+     * 挡不住时的挣扎着法：覆盖威胁路最多的两格(按上一次求解，溢出时只计前 MAX_THREATS 条)，第二格可能为 -1
+     */
+    public int[] mostCovering() {
+        int[] cover = new int[TOTAL];
+        for (int t = 0; t < threatCount; t++) {
+            for (int k = 0; k < threatEmptyCount[t]; k++) cover[threatEmpties[t][k]]++;
+        }
+        return mostCovered(cover);
+    }
+
+    /**
+     * cover[cell] 为各格覆盖的威胁路数，返回覆盖最多的两格，没有时为 -1
+     */
+    static int[] mostCovered(int[] cover) {
+        int best1 = -1, best2 = -1;
+        for (int cell = 0; cell < TOTAL; cell++) {
+            if (cover[cell] == 0) continue;
+            if (best1 < 0 || cover[cell] > cover[best1]) {
+                best2 = best1;
+                best1 = cell;
+            } else if (best2 < 0 || cover[cell] > cover[best2]) {
+                best2 = cell;
+            }
+        }
+        return new int[]{best1, best2};
+    }
+
+    /**
+     * 按己方进攻价值降序排列防守组合，自由的第二子不计分
+     */
+    public static void rank(List<int[]> blocks, IntUnaryOperator value) {
+        blocks.sort((x, y) -> Long.compare(score(y, value), score(x, value)));
+    }
+
+    private static long score(int[] block, IntUnaryOperator value) {
+        return (long) value.applyAsInt(block[0]) + (block[1] >= 0 ? value.applyAsInt(block[1]) : 0);
+    }
+}
@@ -0,0 +1,97 @@
+package stud.common;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * 一步棋的计时器
+ * WALL 按墙钟计时；CPU 按本线程的 CPU 时间计时，与框架的 StopwatchCPU 相同(ThreadMXBean.getCurrentThreadCpuTime)，
+ * 并行比赛时其他对局抢占处理器、或同一 JVM 中其他棋手引起 GC 停顿，都不会扣掉本方的思考时间。
+ * 读一次线程 CPU 时间的代价约为读墙钟的十倍(每次零点几微秒)，搜索循环里每个节点都读就太贵了，
+ * 所以 expired 摊销采样：每 stride 次调用才真正读一次，stride 随两次读数的间隔自适应，使读数约每 SAMPLE_NANOS 一次，
+ * 超时的判断最多晚这么久。一旦发现超时便记住，之后的调用不再读时钟。
+ * 只在调用 start 的线程上使用；按系统属性 前缀.clock=wall|cpu 选择，默认 wall。
+ */
+public final class MoveClock {
+
+    public enum Kind {
+        WALL, CPU;
+
+        /**
+         * 读取系统属性 prefix.clock
+         */
+        public static Kind configured(String prefix) {
+            String value = System.getProperty(prefix + ".clock", "wall").trim();
+            if (value.equalsIgnoreCase("wall")) return WALL;
+            if (value.equalsIgnoreCase("cpu")) return CPU;
+            throw new IllegalArgumentException("unknown clock for " + prefix + ": " + value);
+        }
+    }
+
+    private static final long SAMPLE_NANOS = 100_000;
+    private static final int MAX_STRIDE = 1 << 16;
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private final boolean cpu;
+    private final long start;
+    private long last;      // 最近一次读数
+    private int stride = 1;
+    private int countdown = 1;
+
+    private MoveClock(boolean cpu) {
+        this.cpu = cpu;
+        this.start = now();
+        this.last = start;
+    }
+
+    /**
+     * 从现在开始计时。本 JVM 不支持线程 CPU 时间时 CPU 退化为 WALL
+     */
+    public static MoveClock start(Kind kind) {
+        return new MoveClock(kind == Kind.CPU && cpuTimeAvailable());
+    }
+
+    private static boolean cpuTimeAvailable() {
+        if (!THREADS.isCurrentThreadCpuTimeSupported()) return false;
+        if (!THREADS.isThreadCpuTimeEnabled()) THREADS.setThreadCpuTimeEnabled(true);
+        return true;
+    }
+
+    /** 实际使用的是否为 CPU 时间 */
+    public boolean cpu() {
+        return cpu;
+    }
+
+    /**
+     * 是否已用完 budgetMillis 毫秒(摊销采样)
+     */
+    public boolean expired(long budgetMillis) {
+        long budget = budgetMillis * 1_000_000L;
+        if (last - start >= budget) return true;
+        if (--countdown > 0) return false;
+        long now = now();
+        // 调整步长，使两次读数相隔约 SAMPLE_NANOS
+        long gap = now - last;
+        if (gap < SAMPLE_NANOS / 2 && stride < MAX_STRIDE) stride <<= 1;
+        else if (gap > SAMPLE_NANOS * 2 && stride > 1) stride >>= 1;
+        countdown = stride;
+        last = now;
+        return now - start >= budget;
+    }
+
+    /**
+     * 立即读时钟，返回已用纳秒
+     */
+    public long elapsedNanos() {
+        last = Math.max(last, now());
+        return last - start;
+    }
+
+    public long elapsedMillis() {
+        return elapsedNanos() / 1_000_000;
+    }
+
+    private long now() {
+        return cpu ? THREADS.getCurrentThreadCpuTime() : System.nanoTime();
+    }
+}
@@ -0,0 +1,98 @@
+package stud.common;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 双子组合选择器
+ * 六子棋每步下两子，组合分 = 单点分之和 + 两子的配合分(有上界 maxBonus)。
+ * 单点按分数降序排列后，对第 i 个点，与其后各点组合的分数上界 s[i] + s[j] + maxBonus 随 j 单调不增，
+ * 一旦上界不超过当前第 K 好的组合即可停止内层；外层以 s[i] + s[i+1] + maxBonus 同理提前结束。
+ * 通常只需计算 K 个组合附近的少量组合，候选点可以放宽到 60 个以上而不必枚举全部 O(n^2) 组合。
+ */
+public final class PairSelector {
+
+    /**
+     * 两子的配合分，取值须在 [0, maxBonus] 之内
+     */
+    @FunctionalInterface
+    public interface Interaction {
+        long bonus(int a, int b);
+    }
+
+    public static final Interaction NONE = (a, b) -> 0;
+
+    public static final class Pair {
+        public final int a;
+        public final int b;
+        public final long score;
+
+        Pair(int a, int b, long score) {
+            this.a = a;
+            this.b = b;
+            this.score = score;
+        }
+    }
+
+    private int evaluated;
+
+    /**
+     * 选出组合分最高的 k 个组合
+     *
+     * @param cells    候选格
+     * @param scores   候选格的单点分
+     * @param n        候选格数量
+     * @param bonus    配合分
+     * @param maxBonus 配合分上界
+     * @param k        需要的组合数
+     * @return 按组合分降序的组合，不足 k 个时返回全部
+     */
+    public List<Pair> select(int[] cells, long[] scores, int n, Interaction bonus, long maxBonus, int k) {
+        evaluated = 0;
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) order[i] = i;
+        Arrays.sort(order, (x, y) -> Long.compare(scores[y], scores[x]));
+
+        // 当前最好的 k 个组合，按分数降序保存
+        long[] topScore = new long[k];
+        int[] topA = new int[k];
+        int[] topB = new int[k];
+        int size = 0;
+
+        for (int i = 0; i + 1 < n; i++) {
+            long si = scores[order[i]];
+            if (size == k && si + scores[order[i + 1]] + maxBonus <= topScore[k - 1]) break;
+            for (int j = i + 1; j < n; j++) {
+                long bound = si + scores[order[j]] + maxBonus;
+                if (size == k && bound <= topScore[k - 1]) break;
+                int a = cells[order[i]], b = cells[order[j]];
+                long score = si + scores[order[j]] + bonus.bonus(a, b);
+                evaluated++;
+                if (size == k && score <= topScore[k - 1]) continue;
+
+                int pos = size < k ? size++ : k - 1;
+                while (pos > 0 && topScore[pos - 1] < score) {
+                    topScore[pos] = topScore[pos - 1];
+                    topA[pos] = topA[pos - 1];
+                    topB[pos] = topB[pos - 1];
+                    pos--;
+                }
+                topScore[pos] = score;
+                topA[pos] = a;
+                topB[pos] = b;
+            }
+        }
+
+        List<Pair> result = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) result.add(new Pair(topA[i], topB[i], topScore[i]));
+        return result;
+    }
+
+    /**
+     * 上一次 select 实际计算的组合数
+     */
+    public int evaluated() {
+        return evaluated;
+    }
+}
@@ -0,0 +1,72 @@
+package stud.common;
+
+/**
+ * 固定搜索量
+ * 默认各版本 AI 按墙钟时间搜索，棋力随机器负载与同时进行的对局数变化，对局也无法复现。
+ * 设定固定搜索量后不再看时钟：每步搜到给定的节点数、模拟次数或深度为止，同一对局过程总是得到同一着法，
+ * 同时跑多少局都不影响棋力；代价是每步用时不受控制，预算要按框架的总时限来定。
+ * 由系统属性配置，前缀为版本包名，例如 -Dstud.v2.nodes=200000、-Dstud.v2.depth=4、-Dstud.v4.simulations=3000；
+ * 各版本支持哪几项见其 AI 类。0 或未设定表示该项不限。
+ */
+public final class SearchBudget {
+
+    /** 按时间搜索 */
+    public static final SearchBudget CLOCK = new SearchBudget(0, 0, 0);
+
+    private final long nodes;
+    private final long simulations;
+    private final int depth;
+
+    public SearchBudget(long nodes, long simulations, int depth) {
+        if (nodes < 0 || simulations < 0 || depth < 0) throw new IllegalArgumentException("negative search budget");
+        this.nodes = nodes;
+        this.simulations = simulations;
+        this.depth = depth;
+    }
+
+    /**
+     * 读取系统属性 prefix.nodes、prefix.simulations、prefix.depth
+     */
+    public static SearchBudget configured(String prefix) {
+        return new SearchBudget(Long.getLong(prefix + ".nodes", 0), Long.getLong(prefix + ".simulations", 0),
+                Integer.getInteger(prefix + ".depth", 0));
+    }
+
+    /** 是否设定了任何一项(此时不再按时间搜索) */
+    public boolean fixed() {
+        return nodes > 0 || simulations > 0 || depth > 0;
+    }
+
+    /** 每步节点数上限，0 为不限 */
+    public long nodes() {
+        return nodes;
+    }
+
+    /** 每步模拟次数上限，0 为不限 */
+    public long simulations() {
+        return simulations;
+    }
+
+    /** 搜索深度，0 为引擎默认 */
+    public int depth() {
+        return depth;
+    }
+
+    /** 本步已搜 n 个节点时是否用完节点预算 */
+    public boolean nodesExhausted(long n) {
+        return nodes > 0 && n >= nodes;
+    }
+
+    /**
+     * 每秒节点数(或模拟次数)
+     */
+    public static long perSecond(long count, long nanos) {
+        return nanos <= 0 ? 0 : (long) (count * 1e9 / nanos);
+    }
+
+    @Override
+    public String toString() {
+        if (!fixed()) return "clock";
+        return "nodes=" + nodes + " simulations=" + simulations + " depth=" + depth;
+    }
+}
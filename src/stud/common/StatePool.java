@@ -0,0 +1,88 @@
+package stud.common;
+
+import core.board.Board;
+import core.game.Game;
+import core.player.Player;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * 对局状态池
+ * 框架的 Match 为每局棋浅拷贝一次棋手(Player.clone)，并在开赛前对所有拷贝调用 playGame，
+ * 所以预分配的棋盘结构既不能在 playGame 里重新分配(每局都是垃圾)，也不能直接挂在棋手字段上共用(拷贝之间共享引用)。
+ * 状态池按"正在进行的对局"出租状态对象：棋手在本局第一次落子时租用，
+ * 对局结束(Game.running() 为 false)后该状态即可租给下一局，复用前用 reset 就地恢复为空棋盘。
+ * 顺序比赛时整场只分配一份，并行比赛时份数等于同时进行的对局数。
+ * 租约只弱引用棋手与对局：池通常由静态字段持有，不能因此留住已经结束的对局、棋手及其引用的对象(如 V4 的参数)。
+ */
+public final class StatePool<T> {
+
+    /** 框架棋盘池，各版本 AI 共用，Board.clear() 即可就地恢复开局状态 */
+    public static final StatePool<Board> BOARDS = new StatePool<>(Board::new, Board::clear);
+
+    private final Supplier<T> factory;
+    private final Consumer<T> reset;
+    private final List<Lease<T>> leases = new ArrayList<>();
+
+    public StatePool(Supplier<T> factory, Consumer<T> reset) {
+        this.factory = factory;
+        this.reset = reset;
+    }
+
+    /**
+     * 为 owner 当前的对局租用状态。同一局内重复调用返回同一对象。
+     */
+    public synchronized T acquire(Player owner) {
+        Game game = owner.game();
+        Lease<T> free = null;
+        for (Lease<T> lease : leases) {
+            if (lease.heldBy(owner, game)) {
+                return lease.state;
+            }
+            if (free == null && lease.isFree()) {
+                free = lease;
+            }
+        }
+        if (free == null) {
+            free = new Lease<>(factory.get());
+            leases.add(free);
+        }
+        reset.accept(free.state);
+        free.owner = new WeakReference<>(owner);
+        free.game = game == null ? null : new WeakReference<>(game);
+        return free.state;
+    }
+
+    /**
+     * 池中已分配的状态份数
+     */
+    public synchronized int size() {
+        return leases.size();
+    }
+
+    private static final class Lease<T> {
+        final T state;
+        WeakReference<Player> owner;
+        WeakReference<Game> game;   // 租用时棋手还没有对局则为 null
+
+        Lease(T state) {
+            this.state = state;
+        }
+
+        boolean heldBy(Player player, Game g) {
+            return owner != null && owner.get() == player && (game == null ? g == null : game.get() == g);
+        }
+
+        // 棋手或对局已被回收、或对局已结束
+        boolean isFree() {
+            if (owner == null || owner.get() == null) return true;
+            if (game == null) return false;
+            Game g = game.get();
+            return g == null || !g.running();
+        }
+    }
+}
@@ -0,0 +1,306 @@
+package stud.common;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 六子棋"路"表(滑动窗口评估器)
+ * 路指棋盘上任意连续6格(横、竖、两条斜线，19x19 共 924 条)。表中维护：
+ * 1. 每条路上双方的棋子数
+ * 2. 每方"活路"统计：有 k 子且没有敌子的路数 live[p][k]，及其加权和(整盘评估)
+ * 3. 每个格子对每方的潜力分：经过该格、没有敌子的路的权重之和
+ * 4. 每方的威胁路集合(4子以上且无敌子，再下至多两子即连六)，可 O(1) 增删与查询
+ * 落子/提子只触及该格所在的至多24条路，以上各项全部增量更新。
+ * 玩家编号为 0/1，EMPTY 表示空格，调用方自行约定 0/1 对应的颜色。
+ */
+public final class WindowTable {
+
+    public static final int LENGTH = 19;
+    public static final int TOTAL = LENGTH * LENGTH;
+    public static final int SIZE = 6;
+    public static final int EMPTY = 2;
+
+    /** 路的总数 */
+    public static final int COUNT;
+    /** 每条路包含的6个格子，格子编号为 row * 19 + col */
+    public static final int[][] CELLS;
+    /** 每个格子所在的路(最多24条) */
+    public static final int[][] OF_CELL;
+
+    /** 默认权重：没有敌子的路上有 k 子时的分值 */
+    public static final long[] DEFAULT_WEIGHTS = {0, 1, 5, 25, 400, 2000, 1_000_000};
+
+    static {
+        int[][] dirs = {{0, 1}, {1, 0}, {1, 1}, {1, -1}};
+        List<int[]> windows = new ArrayList<>();
+        int[] cellCount = new int[TOTAL];
+        for (int[] d : dirs) {
+            for (int r = 0; r < LENGTH; r++) {
+                for (int c = 0; c < LENGTH; c++) {
+                    int er = r + d[0] * (SIZE - 1), ec = c + d[1] * (SIZE - 1);
+                    if (er < 0 || er >= LENGTH || ec < 0 || ec >= LENGTH) continue;
+                    int[] cells = new int[SIZE];
+                    for (int k = 0; k < SIZE; k++) {
+                        cells[k] = (r + d[0] * k) * LENGTH + c + d[1] * k;
+                        cellCount[cells[k]]++;
+                    }
+                    windows.add(cells);
+                }
+            }
+        }
+        COUNT = windows.size();
+        CELLS = windows.toArray(new int[0][]);
+        OF_CELL = new int[TOTAL][];
+        for (int i = 0; i < TOTAL; i++) {
+            OF_CELL[i] = new int[cellCount[i]];
+            cellCount[i] = 0;
+        }
+        for (int w = 0; w < COUNT; w++) {
+            for (int cell : CELLS[w]) {
+                OF_CELL[cell][cellCount[cell]++] = w;
+            }
+        }
+    }
+
+    private final long[] weights;
+
+    private final byte[] stones = new byte[TOTAL];
+    private final int[][] counts = new int[COUNT][2];
+    private final int[][] live = new int[2][SIZE + 1];
+    private final long[] score = new long[2];
+    private final long[][] cellScore = new long[TOTAL][2];
+
+    // 每方的威胁路集合: list 存路编号，index 存路在 list 中的位置(-1 表示不在集合中)
+    private final int[][] list = new int[2][COUNT];
+    private final int[][] index = new int[2][COUNT];
+    private final int[] size = new int[2];
+
+    // 求防守组合用的复用缓冲
+    private final DefenseSolver solver = new DefenseSolver();
+    private final int[][] emptyCells = new int[COUNT][2];
+    private final int[] emptyCounts = new int[COUNT];
+
+    public WindowTable() {
+        this(DEFAULT_WEIGHTS);
+    }
+
+    /**
+     * @param weights 长度为 7，没有敌子的路上有 k 子时的分值
+     */
+    public WindowTable(long[] weights) {
+        if (weights.length != SIZE + 1) {
+            throw new IllegalArgumentException("weights must have " + (SIZE + 1) + " entries");
+        }
+        this.weights = weights.clone();
+        clear();
+    }
+
+    /**
+     * 恢复为空棋盘
+     */
+    public void clear() {
+        java.util.Arrays.fill(stones, (byte) EMPTY);
+        for (int w = 0; w < COUNT; w++) {
+            counts[w][0] = 0;
+            counts[w][1] = 0;
+            index[0][w] = -1;
+            index[1][w] = -1;
+        }
+        for (int p = 0; p < 2; p++) {
+            java.util.Arrays.fill(live[p], 0);
+            live[p][0] = COUNT;
+            score[p] = COUNT * weights[0];
+            size[p] = 0;
+        }
+        for (int cell = 0; cell < TOTAL; cell++) {
+            cellScore[cell][0] = OF_CELL[cell].length * weights[0];
+            cellScore[cell][1] = OF_CELL[cell].length * weights[0];
+        }
+    }
+
+    /**
+     * 将某格设为 to (0/1/EMPTY)
+     */
+    public void set(int cell, int to) {
+        int from = stones[cell];
+        if (from == to) return;
+        stones[cell] = (byte) to;
+        for (int w : OF_CELL[cell]) {
+            long old0 = contribution(w, 0), old1 = contribution(w, 1);
+            unmark(w, 0);
+            unmark(w, 1);
+            if (from != EMPTY) counts[w][from]--;
+            if (to != EMPTY) counts[w][to]++;
+            mark(w, 0);
+            mark(w, 1);
+            long d0 = contribution(w, 0) - old0, d1 = contribution(w, 1) - old1;
+            if (d0 != 0 || d1 != 0) {
+                for (int c : CELLS[w]) {
+                    cellScore[c][0] += d0;
+                    cellScore[c][1] += d1;
+                }
+            }
+            refresh(w, 0);
+            refresh(w, 1);
+        }
+    }
+
+    public void place(int cell, int player) {
+        set(cell, player);
+    }
+
+    public void remove(int cell) {
+        set(cell, EMPTY);
+    }
+
+    private long contribution(int w, int p) {
+        return counts[w][p ^ 1] == 0 ? weights[counts[w][p]] : 0;
+    }
+
+    private void unmark(int w, int p) {
+        if (counts[w][p ^ 1] != 0) return;
+        live[p][counts[w][p]]--;
+        score[p] -= weights[counts[w][p]];
+    }
+
+    private void mark(int w, int p) {
+        if (counts[w][p ^ 1] != 0) return;
+        live[p][counts[w][p]]++;
+        score[p] += weights[counts[w][p]];
+    }
+
+    private void refresh(int w, int p) {
+        boolean threat = counts[w][p] >= 4 && counts[w][p ^ 1] == 0;
+        int pos = index[p][w];
+        if (threat && pos < 0) {
+            index[p][w] = size[p];
+            list[p][size[p]++] = w;
+        } else if (!threat && pos >= 0) {
+            int last = list[p][--size[p]];
+            list[p][pos] = last;
+            index[p][last] = pos;
+            index[p][w] = -1;
+        }
+    }
+
+    // ==================== 查询 ====================
+
+    public int stone(int cell) {
+        return stones[cell];
+    }
+
+    public boolean isEmpty(int cell) {
+        return stones[cell] == EMPTY;
+    }
+
+    /**
+     * 每条路上双方的棋子数 [w][player]，只读
+     */
+    public int[][] counts() {
+        return counts;
+    }
+
+    /**
+     * player 有 k 子且没有敌子的路数
+     */
+    public int liveWindows(int player, int k) {
+        return live[player][k];
+    }
+
+    /**
+     * player 的活路加权和
+     */
+    public long score(int player) {
+        return score[player];
+    }
+
+    /**
+     * 以 player 视角的整盘评估
+     */
+    public long evaluate(int player) {
+        return score[player] - score[player ^ 1];
+    }
+
+    /**
+     * 某格对 player 的潜力分：经过该格、没有 player 敌子的路的权重之和
+     */
+    public long cellScore(int cell, int player) {
+        return cellScore[cell][player];
+    }
+
+    public boolean isWin(int player) {
+        return live[player][SIZE] > 0;
+    }
+
+    public boolean hasThreat(int player) {
+        return size[player] > 0;
+    }
+
+    public int threatCount(int player) {
+        return size[player];
+    }
+
+    /**
+     * player 的第 i 条威胁路
+     */
+    public int threat(int player, int i) {
+        return list[player][i];
+    }
+
+    /**
+     * player 恰有3子且无敌子的路数，即再下一两子就能造出威胁的进攻潜力
+     */
+    public int attackWindows(int player) {
+        return live[player][3];
+    }
+
+    /**
+     * player 某条威胁路上的空格，补上即连六；没有威胁返回 null
+     */
+    public int[] winningCells(int player) {
+        for (int i = 0; i < size[player]; i++) {
+            int[] cells = new int[2];
+            int n = 0;
+            for (int cell : CELLS[list[player][i]]) {
+                if (stones[cell] == EMPTY) cells[n++] = cell;
+            }
+            if (n == 0) continue;
+            return n == 2 ? cells : new int[]{cells[0]};
+        }
+        return null;
+    }
+
+    /**
+     * defender 挡住对方全部威胁的所有最小落子组合(威胁路空格的命中集，由 DefenseSolver 求解)。
+     * 每个元素为 {a, b}，b 为 -1 表示只需一子、第二子可自由选择。
+     * 对方无威胁返回 null；两子无法挡住全部威胁返回空列表。
+     */
+    public List<int[]> defenses(int defender) {
+        int attacker = defender ^ 1;
+        int n = size[attacker];
+        if (n == 0) return null;
+
+        for (int i = 0; i < n; i++) {
+            int k = 0;
+            for (int cell : CELLS[list[attacker][i]]) {
+                if (stones[cell] == EMPTY && k < 2) emptyCells[i][k++] = cell;
+            }
+            emptyCounts[i] = k;
+        }
+        return solver.solve(emptyCells, emptyCounts, n);
+    }
+
+    /**
+     * defenses 挡不住时 defender 的挣扎着法：按当前局面取覆盖对方威胁路最多的两格，第二格可能为 -1
+     */
+    public int[] mostCovering(int defender) {
+        int attacker = defender ^ 1;
+        int[] cover = new int[TOTAL];
+        for (int i = 0; i < size[attacker]; i++) {
+            for (int cell : CELLS[list[attacker][i]]) {
+                if (stones[cell] == EMPTY) cover[cell]++;
+            }
+        }
+        return DefenseSolver.mostCovered(cover);
+    }
+}
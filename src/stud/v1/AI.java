@@ -1,21 +1,56 @@
 package stud.v1;
 
-import core.board.Board;
 import core.board.PieceColor;
 import core.game.Game;
 import core.game.Move;
+import stud.common.BatchEvaluator;
+import stud.common.PairSelector;
+import stud.common.StatePool;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
 
 public class AI extends core.player.AI {
     protected static final int[][] DIRECTIONS = {{1,0}, {0,1}, {1,1}, {1,-1}};
     protected PieceColor myColor;
-    private boolean colorInitialized = false;
+
+    // 本局的威胁索引，从状态池租用，每步开始时与棋盘同步
+    private static final StatePool<ThreatIndex> INDEXES = new StatePool<>(ThreatIndex::new, ThreatIndex::clear);
+    private ThreatIndex index;
+    private final PairSelector pairSelector = new PairSelector();
+    // 本局的整盘批量评估器，与威胁索引一样按局租用
+    private static final StatePool<BatchEvaluator> EVALUATORS = new StatePool<>(BatchEvaluator::new, BatchEvaluator::clear);
+
+    // 单方向棋型分 [连子数(含落子)][两端空位数]：两侧已有 2/3/4+ 子时分别得分，与两端无关
+    private static final int[][] MY_PATTERN = pattern(50, 500, 10000);
+    private static final int[][] OPP_PATTERN = pattern(40, 400, 8000);
+
+    private static int[][] pattern(int two, int three, int four) {
+        int[][] table = new int[BatchEvaluator.MAX_COUNT + 1][3];
+        for (int open = 0; open < 3; open++) {
+            table[3][open] = two;
+            table[4][open] = three;
+            table[5][open] = four;
+            table[6][open] = four;
+        }
+        return table;
+    }
+
+    @Override
+    public Move firstMove() {
+        board = StatePool.BOARDS.acquire(this);
+        return super.firstMove();
+    }
 
     @Override
     public Move findNextMove(Move opponentMove) {
+        board = StatePool.BOARDS.acquire(this);
         this.board.makeMove(opponentMove);
+        // 执黑执白由裁判在开局时设定；框架只在有对手着法时调用本方法，不能据此推断颜色
+        myColor = getColor();
+        index = INDEXES.acquire(this);
+        index.sync(board);
 
         Move winMove = findWinningMove(myColor);
         if (winMove != null) {
@@ -38,80 +73,61 @@ public class AI extends core.player.AI {
         return move != null && move.index1() != -1;
     }
 
-    private void initColor(Move opponentMove) {
-        myColor = (opponentMove == null || opponentMove.index1() == -1)
-                  ? PieceColor.BLACK : PieceColor.WHITE;
-        colorInitialized = true;
-    }
-
     protected Move findWinningMove(PieceColor color) {
-        List<Integer> threats = findThreats(color);
-        return threats.size() >= 2 ? new Move(threats.get(0), threats.get(1)) : null;
+        return firstTwoThreats(color);
     }
 
     private Move findBlockingMove() {
         PieceColor opponent = (myColor == PieceColor.BLACK) ? PieceColor.WHITE : PieceColor.BLACK;
-        List<Integer> threats = findThreats(opponent);
-        return threats.size() >= 2 ? new Move(threats.get(0), threats.get(1)) : null;
+        return firstTwoThreats(opponent);
     }
 
+    private Move firstTwoThreats(PieceColor color) {
+        BitSet threats = index.threats(color);
+        int first = threats.nextSetBit(0);
+        int second = first < 0 ? -1 : threats.nextSetBit(first + 1);
+        return second >= 0 ? new Move(first, second) : null;
+    }
+
+    /**
+     * 威胁格：空格且某方向上两侧连续的 color 棋子数达到4(查威胁索引)
+     */
     protected List<Integer> findThreats(PieceColor color) {
         List<Integer> threats = new ArrayList<>();
-
-        for (int i = 0; i < 361; i++) {
-            if (board.get(i) != PieceColor.EMPTY) continue;
-            
-            int row = i / 19, col = i % 19;
-            for (int[] dir : DIRECTIONS) {
-                int count = countLineFromEmpty(row, col, dir[0], dir[1], color);
-                if (count >= 4) {
-                    threats.add(i);
-                    break;
-                }
-            }
+        BitSet set = index.threats(color);
+        for (int i = set.nextSetBit(0); i >= 0; i = set.nextSetBit(i + 1)) {
+            threats.add(i);
         }
         return threats;
     }
 
-    protected int countLineFromEmpty(int row, int col, int dr, int dc, PieceColor color) {
-        int count = 0;
-
-        for (int i = 1; i <= 5; i++) {
-            int r = row + dr * i, c = col + dc * i;
-            if (r < 0 || r >= 19 || c < 0 || c >= 19) break;
-            if (board.get(r * 19 + c) == color) count++;
-            else break;
-        }
-
-        for (int i = 1; i <= 5; i++) {
-            int r = row - dr * i, c = col - dc * i;
-            if (r < 0 || r >= 19 || c < 0 || c >= 19) break;
-            if (board.get(r * 19 + c) == color) count++;
-            else break;
-        }
-
-        return count;
-    }
-
+    /**
+     * 两子的得分是两个单点得分之和(没有配合分)。全部空格的单点得分由批量评估器一次算出
+     * (与 evaluateMove 相同)，交给组合选择器，排序后第一个组合即为最优。
+     */
     protected Move findSmartMove() {
-        int bestPos1 = -1, bestPos2 = -1;
-        int bestScore = -1;
-
-        List<Integer> empty = getEmptyPositions();
-        int limit = Math.min(empty.size(), 30);
-
-        for (int i = 0; i < limit; i++) {
-            for (int j = i + 1; j < limit; j++) {
-                int score = evaluateMove(empty.get(i)) + evaluateMove(empty.get(j));
-                if (score > bestScore) {
-                    bestScore = score;
-                    bestPos1 = empty.get(i);
-                    bestPos2 = empty.get(j);
-                }
-            }
+        BatchEvaluator evaluator = EVALUATORS.acquire(this);
+        evaluator.sync(board);
+        long[] points = new long[361];
+        for (int pos = 0; pos < 361; pos++) {
+            int distToCenter = Math.abs(pos / 19 - 9) + Math.abs(pos % 19 - 9);
+            points[pos] = 18 - distToCenter;
+        }
+        int me = ThreatIndex.index(myColor);
+        evaluator.accumulate(me, MY_PATTERN, points);
+        evaluator.accumulate(me ^ 1, OPP_PATTERN, points);
+
+        int[] cells = new int[361];
+        long[] scores = new long[361];
+        int n = 0;
+        for (int pos = 0; pos < 361; pos++) {
+            if (!index.isEmpty(pos)) continue;
+            cells[n] = pos;
+            scores[n++] = points[pos];
         }
 
-        return bestPos1 != -1 ? new Move(bestPos1, bestPos2) : new Move(180, 181);
+        List<PairSelector.Pair> best = pairSelector.select(cells, scores, n, PairSelector.NONE, 0, 1);
+        return best.isEmpty() ? new Move(180, 181) : new Move(best.get(0).a, best.get(0).b);
     }
 
     protected int evaluateMove(int pos) {
@@ -119,9 +135,9 @@ public class AI extends core.player.AI {
         int myScore = 0, oppScore = 0;
         PieceColor opponent = (myColor == PieceColor.BLACK) ? PieceColor.WHITE : PieceColor.BLACK;
 
-        for (int[] dir : DIRECTIONS) {
-            int myCount = countLineFromEmpty(row, col, dir[0], dir[1], myColor);
-            int oppCount = countLineFromEmpty(row, col, dir[0], dir[1], opponent);
+        for (int d = 0; d < DIRECTIONS.length; d++) {
+            int myCount = index.run(pos, myColor, d);
+            int oppCount = index.run(pos, opponent, d);
 
             if (myCount >= 4) myScore += 10000;
             else if (myCount == 3) myScore += 500;
@@ -136,10 +152,6 @@ public class AI extends core.player.AI {
         return myScore + oppScore + (18 - distToCenter);
     }
 
-    protected int countLine(int row, int col, int dr, int dc, PieceColor color) {
-        return countLineFromEmpty(row, col, dr, dc, color);
-    }
-
     protected List<Integer> getEmptyPositions() {
         List<Integer> empty = new ArrayList<>();
         for (int i = 0; i < 361; i++) {
@@ -156,8 +168,6 @@ public class AI extends core.player.AI {
     @Override
     public void playGame(Game game) {
         super.playGame(game);
-        board = new Board();
-        colorInitialized = false;
         myColor = null;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,117 @@
+package stud.v1;
+
+import core.board.Board;
+import core.board.PieceColor;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * V1 的增量威胁索引
+ * 对每个格子、每种颜色、每个方向记录"从该格向两侧连续的同色棋子数"(即原 countLineFromEmpty 的结果)，
+ * 并为每种颜色维护威胁格集合：空格且某方向上连续棋子数达到4，在此落子即成5连以上。
+ * 一个格子变化只影响它所在4条线上前后各5格的记录，按变化格局部重算；威胁判断变为查表。
+ * 颜色编号：黑 0、白 1。
+ */
+final class ThreatIndex {
+
+    private static final int LENGTH = 19;
+    private static final int TOTAL = LENGTH * LENGTH;
+    private static final int REACH = 5;
+    private static final int[][] DIRECTIONS = {{1, 0}, {0, 1}, {1, 1}, {1, -1}};
+
+    private final PieceColor[] colors = new PieceColor[TOTAL];
+    private final int[][][] runs = new int[TOTAL][2][4];
+    private final BitSet[] threats = {new BitSet(TOTAL), new BitSet(TOTAL)};
+
+    ThreatIndex() {
+        clear();
+    }
+
+    void clear() {
+        Arrays.fill(colors, PieceColor.EMPTY);
+        for (int[][] cell : runs) {
+            Arrays.fill(cell[0], 0);
+            Arrays.fill(cell[1], 0);
+        }
+        threats[0].clear();
+        threats[1].clear();
+    }
+
+    /**
+     * 与框架棋盘同步：逐格比较，只在变化的格子周围重算
+     */
+    void sync(Board board) {
+        for (int i = 0; i < TOTAL; i++) {
+            PieceColor c = board.get(i);
+            if (colors[i] != c) set(i, c);
+        }
+    }
+
+    private void set(int cell, PieceColor color) {
+        colors[cell] = color;
+        int row = cell / LENGTH, col = cell % LENGTH;
+        refresh(cell);
+        for (int[] dir : DIRECTIONS) {
+            for (int k = 1; k <= REACH; k++) {
+                refreshIfInBoard(row + dir[0] * k, col + dir[1] * k);
+                refreshIfInBoard(row - dir[0] * k, col - dir[1] * k);
+            }
+        }
+    }
+
+    private void refreshIfInBoard(int row, int col) {
+        if (row >= 0 && row < LENGTH && col >= 0 && col < LENGTH) refresh(row * LENGTH + col);
+    }
+
+    private void refresh(int cell) {
+        int row = cell / LENGTH, col = cell % LENGTH;
+        for (int c = 0; c < 2; c++) {
+            PieceColor color = c == 0 ? PieceColor.BLACK : PieceColor.WHITE;
+            boolean threat = false;
+            for (int d = 0; d < 4; d++) {
+                int n = countLine(row, col, DIRECTIONS[d][0], DIRECTIONS[d][1], color);
+                runs[cell][c][d] = n;
+                if (n >= 4) threat = true;
+            }
+            threats[c].set(cell, threat && colors[cell] == PieceColor.EMPTY);
+        }
+    }
+
+    private int countLine(int row, int col, int dr, int dc, PieceColor color) {
+        int count = 0;
+        for (int i = 1; i <= REACH; i++) {
+            int r = row + dr * i, c = col + dc * i;
+            if (r < 0 || r >= LENGTH || c < 0 || c >= LENGTH || colors[r * LENGTH + c] != color) break;
+            count++;
+        }
+        for (int i = 1; i <= REACH; i++) {
+            int r = row - dr * i, c = col - dc * i;
+            if (r < 0 || r >= LENGTH || c < 0 || c >= LENGTH || colors[r * LENGTH + c] != color) break;
+            count++;
+        }
+        return count;
+    }
+
+    static int index(PieceColor color) {
+        return color == PieceColor.BLACK ? 0 : 1;
+    }
+
+    /**
+     * 格子在第 d 个方向上两侧连续的 color 棋子数
+     */
+    int run(int cell, PieceColor color, int d) {
+        return runs[cell][index(color)][d];
+    }
+
+    /**
+     * color 的威胁格(按格子编号升序)，只读
+     */
+    BitSet threats(PieceColor color) {
+        return threats[index(color)];
+    }
+
+    boolean isEmpty(int cell) {
+        return colors[cell] == PieceColor.EMPTY;
+    }
+}
@@ -4,79 +4,108 @@ import core.board.Board;
 import core.board.PieceColor;
 import core.game.Game;
 import core.game.Move;
+import stud.common.MoveClock;
+import stud.common.SearchBudget;
+import stud.common.StatePool;
 
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class AI extends core.player.AI {
     protected static final int[][] DIRECTIONS = {{1,0}, {0,1}, {1,1}, {1,-1}};
     protected PieceColor myColor;
 
-    private static final int MAX_DEPTH = 3;
+    private static final int MAX_DEPTH = 6;
     private static final int INF = 10000000;
     private static final int CANDIDATE_LIMIT = 10;
     private static final int[] SCORES = {0, 10, 100, 1000, 50000, 1000000};
+    private static final long TIME_LIMIT_MS = 2800;
 
-    private Map<Long, Integer> transpositionTable = new HashMap<>();
-    private long zobristHash = 0;
-    private long[][] zobristTable = new long[361][2];
+    // 胜负分：高于任何静态评估
+    private static final int WIN_SCORE = 5000000;
+    // 静态搜索：最多延伸的回合数、每层尝试的造威胁着法数、一子可挡时第二子的候选数
+    private static final int QS_MAX_PLY = 4;
+    private static final int QS_WIDTH = 8;
+    private static final int BLOCK_FREE_STONES = 4;
+
+    // 棋盘上所有连续6格的"路"(横、竖、两条斜线)
+    private static final int[][] WINDOWS = buildWindows();
+
+    // 渴望窗口半宽、后期着法缩减(LMR)参数
+    private static final int ASPIRATION_WINDOW = 500;
+    private static final int LMR_FULL_MOVES = 6;
+    private static final int LMR_MIN_DEPTH = 2;
+
+    // 置换表项的界类型
+    static final int EXACT = 0;
+    static final int LOWER = 1;
+    static final int UPPER = 2;
+
+    // Lazy SMP 搜索线程数(含主线程)，可用 -Dstud.v2.threads=N 指定
+    private static final int THREADS = Math.max(1,
+            Integer.getInteger("stud.v2.threads", Runtime.getRuntime().availableProcessors()));
+    private static ExecutorService helperPool;
 
-    public AI() {
+    // 固定搜索量(见 SearchBudget)：-Dstud.v2.nodes 为每步节点数，-Dstud.v2.depth 为迭代加深的最大深度。
+    // 设定后不看时钟、只用主线程搜索(辅助线程经共享置换表使结果依赖调度)，同一对局过程总是得到同一着法
+    private static final SearchBudget BUDGET = SearchBudget.configured("stud.v2");
+    // 计时方式：-Dstud.v2.clock=cpu 时每个搜索线程按自己的 CPU 时间计 TIME_LIMIT_MS(见 MoveClock)，默认墙钟
+    private static final MoveClock.Kind CLOCK = MoveClock.Kind.configured("stud.v2");
+
+    // 所有搜索线程共用的置换表，按对局从池中租用
+    private static final StatePool<SharedTable> TABLES = new StatePool<>(SharedTable::new, SharedTable::clear);
+
+    private static final long[][] ZOBRIST = new long[361][2];
+
+    static {
         Random rand = new Random(12345);
         for (int i = 0; i < 361; i++) {
-            zobristTable[i][0] = rand.nextLong();
-            zobristTable[i][1] = rand.nextLong();
+            ZOBRIST[i][0] = rand.nextLong();
+            ZOBRIST[i][1] = rand.nextLong();
         }
     }
 
+    private SharedTable table;
+    private long zobristHash = 0;
+
     private void printMove(Move move){
         System.out.println((move.row0())-65 + "    " + (move.col0()-65));
         System.out.println((move.row1())-65 + "    " + (move.col1()-65));
     }
 
+    @Override
+    public Move firstMove() {
+        board = StatePool.BOARDS.acquire(this);
+        return super.firstMove();
+    }
+
     @Override
     public Move findNextMove(Move opponentMove) {
+        board = StatePool.BOARDS.acquire(this);
+        table = TABLES.acquire(this);
         System.out.println("opponentMove");
         System.out.println(this.board.whoseMove());
         printMove(opponentMove);
         this.board.makeMove(opponentMove);
-        updateZobrist(opponentMove);
+        zobristHash ^= zobristDelta(board, opponentMove);
 
-        if (myColor == null) {
-            myColor = (opponentMove == null || opponentMove.index1() == -1)
-                    ? PieceColor.BLACK : PieceColor.WHITE;
-        }
+        // 执黑执白由裁判在开局时设定；框架只在有对手着法时调用本方法，不能据此推断颜色
+        myColor = getColor();
         System.out.println(myColor);
-        PieceColor opponent = getOpponent(myColor);
 
-        Move winMove = findWinningMove(myColor);
+        Move winMove = new Searcher(board, zobristHash, 0).winningMove(myColor);
         if (winMove != null) {
             System.out.println("winMove");
             System.out.println(this.board.whoseMove());
             printMove(winMove);
             this.board.makeMove(winMove);
-            updateZobrist(winMove);
+            zobristHash ^= zobristDelta(board, winMove);
             return winMove;
         }
 
-        Move blockCritical = findCriticalBlock(opponent);
-        if (blockCritical != null) {
-            System.out.println("blockCritical");
-            System.out.println(this.board.whoseMove());
-            printMove(blockCritical);
-            this.board.makeMove(blockCritical);
-            updateZobrist(blockCritical);
-            return blockCritical;
-        }
-
-        Move blockMove = findWinningMove(opponent);
-        if (blockMove != null) {
-            System.out.println("blockMove");
-            System.out.println(this.board.whoseMove());
-            printMove(blockMove);
-            this.board.makeMove(blockMove);
-            updateZobrist(blockMove);
-            return blockMove;
-        }
         System.out.println("alphaBetaSearch_pre");
         System.out.println(this.board.whoseMove());
         Move bestMove = alphaBetaSearch();
@@ -84,277 +113,616 @@ public class AI extends core.player.AI {
         System.out.println(this.board.whoseMove());
         printMove(bestMove);
         this.board.makeMove(bestMove);
-        updateZobrist(bestMove);
+        zobristHash ^= zobristDelta(board, bestMove);
         return bestMove;
     }
 
-    private void updateZobrist(Move move) {
-        if (move == null || move.index1() == -1) return;
+    /**
+     * 着法落子后(或撤销前)对 Zobrist 键的增量，颜色取自棋盘上的棋子
+     */
+    private static long zobristDelta(Board board, Move move) {
+        if (move == null || move.index1() == -1) return 0;
         PieceColor color = board.get(move.index1());
-        int colorIdx = (color == PieceColor.BLACK) ? 0 : 1;
-        zobristHash ^= zobristTable[move.index1()][colorIdx];
+        long delta = ZOBRIST[move.index1()][(color == PieceColor.BLACK) ? 0 : 1];
         if (move.index2() != -1) {
             color = board.get(move.index2());
-            colorIdx = (color == PieceColor.BLACK) ? 0 : 1;
-            zobristHash ^= zobristTable[move.index2()][colorIdx];
+            delta ^= ZOBRIST[move.index2()][(color == PieceColor.BLACK) ? 0 : 1];
         }
+        return delta;
     }
 
-    private Move findCriticalBlock(PieceColor color) {
-        List<Integer> critical = new ArrayList<>();
+    /**
+     * Lazy SMP：主线程与 THREADS-1 个辅助线程在各自的棋盘拷贝上同时做迭代加深搜索，
+     * 只通过共享置换表交换结果。辅助线程错开起始深度并轮转根着法顺序，使各线程先搜不同的子树，
+     * 填入置换表的结果让主线程更快完成每一轮。最终采用主线程的着法，主线程结束后辅助线程随即中止；
+     * 主线程的搜索被中断或抛出异常时也一样，辅助线程不会留在线程池里继续使用本局租用的置换表。
+     * 各线程也各自计时，到时自行停止。
+     */
+    protected Move alphaBetaSearch() {
+        Searcher main = new Searcher(board, zobristHash, 0);
+        // 对方有威胁时只搜挡住全部威胁的着法，挡不住则照常搜索
+        List<Move> candidates = main.blockingMoves(myColor);
+        if (candidates == null || candidates.isEmpty()) candidates = main.generateCandidateMoves();
+        if (candidates.isEmpty()) return findSmartMove();
 
-        for (int i = 0; i < 361; i++) {
-            int row = i / 19, col = i % 19;
-            //System.out.println(board.get(i) + "   "+ row + "   " + col);
-            if (board.get(i) != color) continue;
+        table.clear();
+        long begin = System.nanoTime();
+        int threads = BUDGET.fixed() ? 1 : THREADS;
+
+        List<Searcher> helpers = new ArrayList<>();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int id = 1; id < threads; id++) {
+            Searcher helper = new Searcher(new Board(board), zobristHash, id);
+            List<Move> order = new ArrayList<>(candidates);
+            Collections.rotate(order, -(id % order.size()));
+            helpers.add(helper);
+            futures.add(helperPool().submit(() -> helper.search(order, 1 + (helper.id & 1))));
+        }
+
+        Move bestMove;
+        long nodes;
+        try {
+            bestMove = main.search(candidates, 1);
+        } finally {
+            nodes = stop(helpers, futures);
+        }
+        nodes += main.nodes;
+        System.out.println("depth " + main.completed + " nodes " + nodes + " nps "
+                + SearchBudget.perSecond(nodes, System.nanoTime() - begin) + " score " + main.score
+                + " threads " + threads + " budget " + BUDGET);
+        return bestMove;
+    }
 
-            for (int[] dir : DIRECTIONS) {
-                int count = countConsecutive(row, col, dir[0], dir[1], color);
-                if (count >= 4) {
-                    List<Integer> ext = findExtensions(row, col, dir[0], dir[1], color);
-                    for (int pos : ext) {
-                        if (!critical.contains(pos)) critical.add(pos);
-                    }
+    /**
+     * 中止并等待全部辅助线程，返回它们搜过的节点数
+     */
+    private static long stop(List<Searcher> helpers, List<Future<?>> futures) {
+        for (Searcher helper : helpers) helper.aborted = true;
+        long nodes = 0;
+        boolean interrupted = false;
+        for (int i = 0; i < futures.size(); i++) {
+            while (true) {
+                try {
+                    futures.get(i).get();
+                    break;
+                } catch (InterruptedException e) {
+                    // 辅助线程已被中止，很快就会结束，等它结束后再恢复中断状态
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    e.getCause().printStackTrace();
+                    break;
                 }
             }
+            nodes += helpers.get(i).nodes;
         }
-        System.out.println(" ");
-        if (critical.size() >= 2) {
-            return new Move(critical.get(0), critical.get(1));
-        } else if (critical.size() == 1) {
-            List<Integer> empty = getEmptyPositions();
-            int pos2 = empty.get(0) == critical.get(0) ? empty.get(1) : empty.get(0);
-            return new Move(critical.get(0), pos2);
-        }
-
-        return null;
+        if (interrupted) Thread.currentThread().interrupt();
+        return nodes;
     }
 
-    protected Move findWinningMove(PieceColor color) {
-        List<Integer> threats = findThreats(color);
-        return threats.size() >= 2 ? new Move(threats.get(0), threats.get(1)) : null;
+    private static synchronized ExecutorService helperPool() {
+        if (helperPool == null) {
+            helperPool = Executors.newFixedThreadPool(THREADS - 1, r -> {
+                Thread t = new Thread(r, "v2-helper");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        return helperPool;
     }
 
-    private int countConsecutive(int row, int col, int dr, int dc, PieceColor color) {
-        int count = 1;
-
-        for (int i = 1; i < 6; i++) {
-            int r = row + dr * i, c = col + dc * i;
-            if (r < 0 || r >= 19 || c < 0 || c >= 19 || board.get(r * 19 + c) != color) break;
-            count++;
+    /**
+     * 一个搜索线程的全部可变状态：独占的棋盘(框架 Board 的 makeMove/undo 非线程安全)、Zobrist 键与计数。
+     */
+    private final class Searcher {
+        final Board board;
+        final int id;
+        long zobristHash;
+        long nodes;
+        volatile boolean aborted;
+        MoveClock clock;
+        Move rootBest;
+        int completed;
+        int score;
+
+        Searcher(Board board, long zobristHash, int id) {
+            this.board = board;
+            this.zobristHash = zobristHash;
+            this.id = id;
+        }
+
+        // 搜到第 n 个节点时是否该中止：固定搜索量时按节点数，否则看本线程的计时器(摊销采样)
+        private boolean outOfBudget(long n) {
+            if (BUDGET.fixed()) return BUDGET.nodesExhausted(n);
+            return clock.expired(TIME_LIMIT_MS);
+        }
+
+        private void updateZobrist(Move move) {
+            zobristHash ^= zobristDelta(board, move);
+        }
+
+        /**
+         * 迭代加深 + 渴望窗口：每一轮以上一轮的分数为中心开窄窗口，落在窗口外再全窗口重搜。
+         * 超时(或用完节点数)中断的一轮作废，返回最后完成一轮的最佳着法。
+         */
+        Move search(List<Move> candidates, int startDepth) {
+            // 在执行搜索的线程上开始计时(CPU 计时按线程)
+            clock = MoveClock.start(CLOCK);
+            Move bestMove = candidates.get(0);
+            int prevScore = 0;
+            int maxDepth = BUDGET.depth() > 0 ? BUDGET.depth() : MAX_DEPTH;
+            for (int depth = startDepth; depth <= maxDepth; depth++) {
+                int alpha = depth == startDepth ? -INF : prevScore - ASPIRATION_WINDOW;
+                int beta = depth == startDepth ? INF : prevScore + ASPIRATION_WINDOW;
+                int score = searchRoot(candidates, depth, alpha, beta);
+                if (!aborted && (score <= alpha || score >= beta)) {
+                    score = searchRoot(candidates, depth, -INF, INF);
+                }
+                if (aborted) break;
+
+                bestMove = rootBest;
+                prevScore = score;
+                completed = depth;
+                // 上一轮的最佳着法排在最前
+                candidates.remove(bestMove);
+                candidates.add(0, bestMove);
+                if (!BUDGET.fixed() && clock.expired(TIME_LIMIT_MS)) break;
+            }
+            score = prevScore;
+            return bestMove;
         }
 
-        for (int i = 1; i < 6; i++) {
-            int r = row - dr * i, c = col - dc * i;
-            if (r < 0 || r >= 19 || c < 0 || c >= 19 || board.get(r * 19 + c) != color) break;
-            count++;
-        }
+        private int countConsecutive(int row, int col, int dr, int dc, PieceColor color) {
+            int count = 1;
 
-        return count;
-    }
+            for (int i = 1; i < 6; i++) {
+                int r = row + dr * i, c = col + dc * i;
+                if (r < 0 || r >= 19 || c < 0 || c >= 19 || board.get(r * 19 + c) != color) break;
+                count++;
+            }
 
-    private List<Integer> findExtensions(int row, int col, int dr, int dc, PieceColor color) {
-        List<Integer> extensions = new ArrayList<>();
+            for (int i = 1; i < 6; i++) {
+                int r = row - dr * i, c = col - dc * i;
+                if (r < 0 || r >= 19 || c < 0 || c >= 19 || board.get(r * 19 + c) != color) break;
+                count++;
+            }
 
-        while (true) {
-            int r = row - dr, c = col - dc;
-            if (r < 0 || r >= 19 || c < 0 || c >= 19 || board.get(r * 19 + c) != color) break;
-            row = r; col = c;
-        }
+            return count;
+        }
+
+        private int searchRoot(List<Move> candidates, int depth, int alpha, int beta) {
+            PieceColor opponent = getOpponent(myColor);
+            int best = -INF;
+            rootBest = candidates.get(0);
+
+            for (int i = 0; i < candidates.size(); i++) {
+                Move move = candidates.get(i);
+                board.makeMove(move);
+                updateZobrist(move);
+                int score;
+                if (i == 0) {
+                    score = -negamax(depth - 1, -beta, -alpha, opponent);
+                } else {
+                    score = -negamax(depth - 1, -alpha - 1, -alpha, opponent);
+                    if (score > alpha && score < beta) {
+                        score = -negamax(depth - 1, -beta, -alpha, opponent);
+                    }
+                }
+                updateZobrist(move);
+                board.undo();
+                if (aborted) return best;
 
-        int r1 = row - dr, c1 = col - dc;
-        if (r1 >= 0 && r1 < 19 && c1 >= 0 && c1 < 19 && board.get(r1 * 19 + c1) == PieceColor.EMPTY) {
-            extensions.add(r1 * 19 + c1);
-        }
+                if (score > best) {
+                    best = score;
+                    rootBest = move;
+                }
+                if (score > alpha) alpha = score;
+                if (alpha >= beta) break;
+            }
+            return best;
+        }
+
+        /**
+         * 主变例搜索(PVS)：第一个着法全窗口，其余先用零窗口验证，fail-high 时再全窗口重搜。
+         * 排在 LMR_FULL_MOVES 之后的着法先减一层搜索，超过 alpha 才恢复全深度。
+         */
+        private int negamax(int depth, int alpha, int beta, PieceColor color) {
+            if (outOfBudget(++nodes)) aborted = true;
+            if (aborted) return 0;
+
+            int alphaOrig = alpha;
+            long entry = table.probe(zobristHash);
+            Move ttMove = null;
+            if (entry != 0) {
+                ttMove = SharedTable.best(entry);
+                if (SharedTable.depth(entry) >= depth) {
+                    int value = SharedTable.value(entry);
+                    int flag = SharedTable.flag(entry);
+                    if (flag == EXACT) return value;
+                    if (flag == LOWER && value >= beta) return value;
+                    if (flag == UPPER && value <= alpha) return value;
+                }
+            }
 
-        while (true) {
-            int r = row + dr, c = col + dc;
-            if (r < 0 || r >= 19 || c < 0 || c >= 19 || board.get(r * 19 + c) != color) break;
-            row = r; col = c;
-        }
+            if (hasThreat(color)) return WIN_SCORE;
 
-        int r2 = row + dr, c2 = col + dc;
-        if (r2 >= 0 && r2 < 19 && c2 >= 0 && c2 < 19 && board.get(r2 * 19 + c2) == PieceColor.EMPTY) {
-            extensions.add(r2 * 19 + c2);
-        }
+            if (depth <= 0) {
+                int eval = quiescence(alpha, beta, color, QS_MAX_PLY);
+                if (!aborted) {
+                    int flag = eval <= alpha ? UPPER : (eval >= beta ? LOWER : EXACT);
+                    table.store(zobristHash, 0, eval, flag, null);
+                }
+                return eval;
+            }
 
-        return extensions;
-    }
+            List<Move> moves = blockingMoves(color);
+            if (moves != null && moves.isEmpty()) return -WIN_SCORE;
+            if (moves == null) moves = generateCandidateMoves();
+            if (moves.isEmpty()) {
+                int eval = evaluate(color);
+                table.store(zobristHash, depth, eval, EXACT, null);
+                return eval;
+            }
+            if (ttMove != null && moves.remove(ttMove)) {
+                moves.add(0, ttMove);
+            }
 
-    protected Move alphaBetaSearch() {
-        List<Move> candidates = generateCandidateMoves();
-        if (candidates.isEmpty()) return findSmartMove();
+            PieceColor opponent = getOpponent(color);
+            int maxScore = -INF;
+            Move bestMove = null;
+            for (int i = 0; i < moves.size(); i++) {
+                Move move = moves.get(i);
+                board.makeMove(move);
+                updateZobrist(move);
+                int score;
+                if (i == 0) {
+                    score = -negamax(depth - 1, -beta, -alpha, opponent);
+                } else {
+                    int reduction = (i >= LMR_FULL_MOVES && depth >= LMR_MIN_DEPTH) ? 1 : 0;
+                    score = -negamax(depth - 1 - reduction, -alpha - 1, -alpha, opponent);
+                    if (reduction > 0 && score > alpha) {
+                        score = -negamax(depth - 1, -alpha - 1, -alpha, opponent);
+                    }
+                    if (score > alpha && score < beta) {
+                        score = -negamax(depth - 1, -beta, -alpha, opponent);
+                    }
+                }
+                updateZobrist(move);
+                board.undo();
+                if (aborted) return 0;
 
-        Move bestMove = candidates.get(0);
-        int alpha = -INF;
+                if (score > maxScore) {
+                    maxScore = score;
+                    bestMove = move;
+                }
+                if (score > alpha) alpha = score;
+                if (alpha >= beta) break;
+            }
 
-        for (Move move : candidates) {
-            board.makeMove(move);
-            updateZobrist(move);
-            int score = -negamax(MAX_DEPTH - 1, -INF, -alpha, getOpponent(myColor));
-            board.undo();
-            updateZobrist(move);
+            int flag = maxScore <= alphaOrig ? UPPER : (maxScore >= beta ? LOWER : EXACT);
+            table.store(zobristHash, depth, maxScore, flag, bestMove);
+            return maxScore;
+        }
+
+        /**
+         * 叶节点的威胁静态搜索：局面"不安静"时不直接估值。
+         * 轮走方有威胁(某条路4子以上且无敌子)则必胜；对方有威胁则只搜挡住全部威胁的着法；
+         * 否则以静态评估为下界(stand pat)，再尝试造出新威胁的着法，直到局面安静或达到延伸上限。
+         */
+        private int quiescence(int alpha, int beta, PieceColor color, int ply) {
+            if (outOfBudget(++nodes)) aborted = true;
+            if (aborted) return 0;
+            if (hasThreat(color)) return WIN_SCORE;
+
+            List<Move> moves = blockingMoves(color);
+            if (moves != null && moves.isEmpty()) return -WIN_SCORE;
+
+            int best;
+            if (moves == null) {
+                best = evaluate(color);
+                if (best >= beta || ply == 0) return best;
+                if (best > alpha) alpha = best;
+                moves = threatMoves(color);
+            } else {
+                if (ply == 0) return evaluate(color);
+                best = -INF;
+            }
 
-            if (score > alpha) {
-                alpha = score;
-                bestMove = move;
+            PieceColor opponent = getOpponent(color);
+            for (Move move : moves) {
+                board.makeMove(move);
+                updateZobrist(move);
+                int score = -quiescence(-beta, -alpha, opponent, ply - 1);
+                updateZobrist(move);
+                board.undo();
+                if (aborted) return 0;
+
+                if (score > best) best = score;
+                if (score > alpha) alpha = score;
+                if (alpha >= beta) break;
+            }
+            return best;
+        }
+
+        /**
+         * color 在该路上的棋子数，有敌子时返回 -1
+         */
+        private int ownCount(int[] window, PieceColor color) {
+            int count = 0;
+            for (int cell : window) {
+                PieceColor c = board.get(cell);
+                if (c == color) count++;
+                else if (c != PieceColor.EMPTY) return -1;
             }
+            return count;
         }
-        return bestMove;
-    }
 
-    private int negamax(int depth, int alpha, int beta, PieceColor color) {
-        if (transpositionTable.containsKey(zobristHash)) {
-            return transpositionTable.get(zobristHash);
-        }
+        private boolean hasThreat(PieceColor color) {
+            for (int[] window : WINDOWS) {
+                if (ownCount(window, color) >= 4) return true;
+            }
+            return false;
+        }
+
+        /**
+         * color 一步连六的着法，没有返回 null
+         */
+        private Move winningMove(PieceColor color) {
+            for (int[] window : WINDOWS) {
+                if (ownCount(window, color) < 4) continue;
+                List<Integer> empty = new ArrayList<>();
+                for (int cell : window) {
+                    if (board.get(cell) == PieceColor.EMPTY) empty.add(cell);
+                }
+                if (empty.isEmpty()) continue;
+                return new Move(empty.get(0), empty.size() > 1 ? empty.get(1) : freeStone(empty.get(0)));
+            }
+            return null;
+        }
+
+        /**
+         * defender 挡住对方全部威胁的着法(对方威胁路空格的命中集)。
+         * 对方无威胁返回 null，两子挡不住返回空列表。
+         */
+        private List<Move> blockingMoves(PieceColor defender) {
+            PieceColor attacker = getOpponent(defender);
+            List<int[]> threats = new ArrayList<>();
+            for (int[] window : WINDOWS) {
+                if (ownCount(window, attacker) < 4) continue;
+                int[] empty = new int[2];
+                int n = 0;
+                for (int cell : window) {
+                    if (board.get(cell) == PieceColor.EMPTY && n < 2) empty[n++] = cell;
+                }
+                threats.add(n == 1 ? new int[]{empty[0]} : empty);
+            }
+            if (threats.isEmpty()) return null;
+
+            List<Move> moves = new ArrayList<>();
+            List<Integer> singles = new ArrayList<>();
+            for (int a : threats.get(0)) {
+                if (hitsAll(threats, a, -1)) singles.add(a);
+            }
+            if (!singles.isEmpty()) {
+                // 一子可挡，第二子取着法质量最高的几个空位
+                List<Integer> free = topCells(BLOCK_FREE_STONES + 1);
+                for (int a : singles) {
+                    int used = 0;
+                    for (int b : free) {
+                        if (b == a || used == BLOCK_FREE_STONES) continue;
+                        moves.add(new Move(a, b));
+                        used++;
+                    }
+                    if (used == 0) moves.add(new Move(a, freeStone(a)));
+                }
+                return moves;
+            }
 
-        if (depth == 0) {
-            int eval = evaluate(color);
-            transpositionTable.put(zobristHash, eval);
-            return eval;
+            // 两子：一子在第一条威胁路上，另一子在它挡不住的第一条威胁路上
+            for (int a : threats.get(0)) {
+                for (int[] rest : threats) {
+                    if (contains(rest, a)) continue;
+                    for (int b : rest) {
+                        if (hitsAll(threats, a, b) && !containsMove(moves, a, b)) moves.add(new Move(a, b));
+                    }
+                    break;
+                }
+            }
+            return moves;
         }
 
-        List<Move> moves = generateCandidateMoves();
-        if (moves.isEmpty()) {
-            int eval = evaluate(color);
-            transpositionTable.put(zobristHash, eval);
-            return eval;
+        private boolean hitsAll(List<int[]> threats, int a, int b) {
+            for (int[] empty : threats) {
+                if (!contains(empty, a) && !contains(empty, b)) return false;
+            }
+            return true;
         }
 
-        int maxScore = -INF;
-        for (Move move : moves) {
-            board.makeMove(move);
-            updateZobrist(move);
-            int score = -negamax(depth - 1, -beta, -alpha, getOpponent(color));
-            board.undo();
-            updateZobrist(move);
+        private boolean contains(int[] cells, int cell) {
+            for (int c : cells) {
+                if (c == cell) return true;
+            }
+            return false;
+        }
 
-            maxScore = Math.max(maxScore, score);
-            if (score >= beta) {
-                transpositionTable.put(zobristHash, beta);
-                return beta;
+        private boolean containsMove(List<Move> moves, int a, int b) {
+            for (Move m : moves) {
+                if ((m.index1() == a && m.index2() == b) || (m.index1() == b && m.index2() == a)) return true;
+            }
+            return false;
+        }
+
+        /**
+         * color 造出新威胁的着法：在己方已有2、3子且无敌子的路上补两子，
+         * 按造出的威胁路数降序，取前 QS_WIDTH 个。
+         */
+        private List<Move> threatMoves(PieceColor color) {
+            Map<Long, Integer> pairs = new HashMap<>();
+            for (int[] window : WINDOWS) {
+                int own = ownCount(window, color);
+                if (own < 2 || own > 3) continue;
+                for (int i = 0; i < 6; i++) {
+                    if (board.get(window[i]) != PieceColor.EMPTY) continue;
+                    for (int j = i + 1; j < 6; j++) {
+                        if (board.get(window[j]) != PieceColor.EMPTY) continue;
+                        long key = (long) Math.min(window[i], window[j]) * 361 + Math.max(window[i], window[j]);
+                        pairs.merge(key, 1, Integer::sum);
+                    }
+                }
+            }
+            List<Long> sorted = new ArrayList<>(pairs.keySet());
+            sorted.sort((a, b) -> pairs.get(b) - pairs.get(a));
+            List<Move> moves = new ArrayList<>();
+            for (int i = 0; i < sorted.size() && i < QS_WIDTH; i++) {
+                long key = sorted.get(i);
+                moves.add(new Move((int) (key / 361), (int) (key % 361)));
             }
-            alpha = Math.max(alpha, score);
+            return moves;
+        }
+
+        /**
+         * 按着法质量取前 n 个有邻子的空位
+         */
+        private List<Integer> topCells(int n) {
+            Map<Integer, Integer> scores = new HashMap<>();
+            for (int i = 0; i < 361; i++) {
+                if (board.get(i) != PieceColor.EMPTY) continue;
+                int row = i / 19, col = i % 19;
+                for (int[] dir : DIRECTIONS) {
+                    int r1 = row + dir[0], c1 = col + dir[1], r2 = row - dir[0], c2 = col - dir[1];
+                    if ((r1 >= 0 && r1 < 19 && c1 >= 0 && c1 < 19 && board.get(r1 * 19 + c1) != PieceColor.EMPTY)
+                            || (r2 >= 0 && r2 < 19 && c2 >= 0 && c2 < 19 && board.get(r2 * 19 + c2) != PieceColor.EMPTY)) {
+                        scores.put(i, evaluateMoveQuality(i));
+                        break;
+                    }
+                }
+            }
+            List<Integer> sorted = new ArrayList<>(scores.keySet());
+            sorted.sort((a, b) -> scores.get(b) - scores.get(a));
+            return sorted.size() > n ? sorted.subList(0, n) : sorted;
         }
 
-        transpositionTable.put(zobristHash, maxScore);
-        return maxScore;
-    }
+        private int freeStone(int exclude) {
+            for (int i = 0; i < 361; i++) {
+                if (i != exclude && board.get(i) == PieceColor.EMPTY) return i;
+            }
+            return exclude;
+        }
 
-    private int evaluate(PieceColor color) {
-        return evaluatePosition(color) - evaluatePosition(getOpponent(color));
-    }
+        private int evaluate(PieceColor color) {
+            return evaluatePosition(color) - evaluatePosition(getOpponent(color));
+        }
 
-    private int evaluatePosition(PieceColor color) {
-        int score = 0;
-        Set<Integer> evaluated = new HashSet<>();
+        private int evaluatePosition(PieceColor color) {
+            int score = 0;
+            Set<Integer> evaluated = new HashSet<>();
 
-        for (int i = 0; i < 361; i++) {
-            if (board.get(i) != color || evaluated.contains(i)) continue;
+            for (int i = 0; i < 361; i++) {
+                if (board.get(i) != color || evaluated.contains(i)) continue;
 
-            int row = i / 19, col = i % 19;
-            for (int[] dir : DIRECTIONS) {
-                int count = countConsecutive(row, col, dir[0], dir[1], color);
-                if (count > 1) {
-                    score += SCORES[Math.min(count, 5)];
-                    markEvaluated(row, col, dir[0], dir[1], color, evaluated);
+                int row = i / 19, col = i % 19;
+                for (int[] dir : DIRECTIONS) {
+                    int count = countConsecutive(row, col, dir[0], dir[1], color);
+                    if (count > 1) {
+                        score += SCORES[Math.min(count, 5)];
+                        markEvaluated(row, col, dir[0], dir[1], color, evaluated);
+                    }
                 }
             }
+            return score;
         }
-        return score;
-    }
 
-    private void markEvaluated(int row, int col, int dr, int dc, PieceColor color, Set<Integer> evaluated) {
-        for (int i = -5; i <= 5; i++) {
-            int r = row + dr * i, c = col + dc * i;
-            if (r >= 0 && r < 19 && c >= 0 && c < 19 && board.get(r * 19 + c) == color) {
-                evaluated.add(r * 19 + c);
+        private void markEvaluated(int row, int col, int dr, int dc, PieceColor color, Set<Integer> evaluated) {
+            for (int i = -5; i <= 5; i++) {
+                int r = row + dr * i, c = col + dc * i;
+                if (r >= 0 && r < 19 && c >= 0 && c < 19 && board.get(r * 19 + c) == color) {
+                    evaluated.add(r * 19 + c);
+                }
             }
         }
-    }
 
-    private List<Move> generateCandidateMoves() {
-        Map<Integer, Integer> scores = new HashMap<>();
-        Set<Integer> occupied = new HashSet<>();
+        private List<Move> generateCandidateMoves() {
+            Map<Integer, Integer> scores = new HashMap<>();
+            Set<Integer> occupied = new HashSet<>();
 
-        for (int i = 0; i < 361; i++) {
-            if (board.get(i) != PieceColor.EMPTY) {
-                occupied.add(i);
+            for (int i = 0; i < 361; i++) {
+                if (board.get(i) != PieceColor.EMPTY) {
+                    occupied.add(i);
+                }
             }
-        }
 
-        if (occupied.isEmpty()) {
-            return List.of(new Move(180, 181));
-        }
+            if (occupied.isEmpty()) {
+                return List.of(new Move(180, 181));
+            }
 
-        for (int pos : occupied) {
-            int row = pos / 19, col = pos % 19;
-            for (int dr = -2; dr <= 2; dr++) {
-                for (int dc = -2; dc <= 2; dc++) {
-                    int r = row + dr, c = col + dc;
-                    if (r >= 0 && r < 19 && c >= 0 && c < 19) {
-                        int candidate = r * 19 + c;
-                        if (board.get(candidate) == PieceColor.EMPTY) {
-                            int score = evaluateMoveQuality(candidate);
-                            scores.put(candidate, scores.getOrDefault(candidate, 0) + score);
+            for (int pos : occupied) {
+                int row = pos / 19, col = pos % 19;
+                for (int dr = -2; dr <= 2; dr++) {
+                    for (int dc = -2; dc <= 2; dc++) {
+                        int r = row + dr, c = col + dc;
+                        if (r >= 0 && r < 19 && c >= 0 && c < 19) {
+                            int candidate = r * 19 + c;
+                            if (board.get(candidate) == PieceColor.EMPTY) {
+                                int score = evaluateMoveQuality(candidate);
+                                scores.put(candidate, scores.getOrDefault(candidate, 0) + score);
+                            }
                         }
                     }
                 }
             }
-        }
 
-        List<Integer> sorted = new ArrayList<>(scores.keySet());
-        sorted.sort((a, b) -> scores.get(b) - scores.get(a));
+            List<Integer> sorted = new ArrayList<>(scores.keySet());
+            sorted.sort((a, b) -> scores.get(b) - scores.get(a));
 
-        List<Move> moves = new ArrayList<>();
-        int limit = Math.min(sorted.size(), CANDIDATE_LIMIT);
-        for (int i = 0; i < limit; i++) {
-            for (int j = i + 1; j < limit; j++) {
-                moves.add(new Move(sorted.get(i), sorted.get(j)));
+            List<Move> moves = new ArrayList<>();
+            int limit = Math.min(sorted.size(), CANDIDATE_LIMIT);
+            for (int i = 0; i < limit; i++) {
+                for (int j = i + 1; j < limit; j++) {
+                    moves.add(new Move(sorted.get(i), sorted.get(j)));
+                }
             }
-        }
 
-        return moves;
-    }
+            return moves;
+        }
 
-    private int evaluateMoveQuality(int pos) {
-        int score = 0;
-        int row = pos / 19, col = pos % 19;
+        private int evaluateMoveQuality(int pos) {
+            int score = 0;
+            int row = pos / 19, col = pos % 19;
 
-        for (int[] dir : DIRECTIONS) {
-            int myCount = countConsecutive(row, col, dir[0], dir[1], myColor);
-            int oppCount = countConsecutive(row, col, dir[0], dir[1], getOpponent(myColor));
+            for (int[] dir : DIRECTIONS) {
+                int myCount = countConsecutive(row, col, dir[0], dir[1], myColor);
+                int oppCount = countConsecutive(row, col, dir[0], dir[1], getOpponent(myColor));
+
+                if (myCount >= 4) score += 100000;
+                else if (oppCount >= 4) score += 50000;
+                else if (myCount == 3) score += 5000;
+                else if (oppCount == 3) score += 3000;
+                else score += myCount * 100 + oppCount * 50;
+            }
 
-            if (myCount >= 4) score += 100000;
-            else if (oppCount >= 4) score += 50000;
-            else if (myCount == 3) score += 5000;
-            else if (oppCount == 3) score += 3000;
-            else score += myCount * 100 + oppCount * 50;
+            return score;
         }
-
-        return score;
     }
 
-    private PieceColor getOpponent(PieceColor color) {
-        return (color == PieceColor.BLACK) ? PieceColor.WHITE : PieceColor.BLACK;
-    }
-
-    protected List<Integer> findThreats(PieceColor color) {
-        List<Integer> threats = new ArrayList<>();
-
-        for (int i = 0; i < 361; i++) {
-            if (board.get(i) != PieceColor.EMPTY) continue;
-
-            int row = i / 19, col = i % 19;
-            for (int[] dir : DIRECTIONS) {
-                int count = countLineFromEmpty(row, col, dir[0], dir[1], color);
-                if (count >= 4) {
-                    threats.add(i);
-                    break;
+    private static int[][] buildWindows() {
+        List<int[]> windows = new ArrayList<>();
+        for (int row = 0; row < 19; row++) {
+            for (int col = 0; col < 19; col++) {
+                for (int[] dir : DIRECTIONS) {
+                    int endRow = row + dir[0] * 5, endCol = col + dir[1] * 5;
+                    if (endRow < 0 || endRow >= 19 || endCol < 0 || endCol >= 19) continue;
+                    int[] cells = new int[6];
+                    for (int i = 0; i < 6; i++) {
+                        cells[i] = (row + dir[0] * i) * 19 + col + dir[1] * i;
+                    }
+                    windows.add(cells);
                 }
             }
         }
-        return threats;
+        return windows.toArray(new int[0][]);
+    }
+
+    private PieceColor getOpponent(PieceColor color) {
+        return (color == PieceColor.BLACK) ? PieceColor.WHITE : PieceColor.BLACK;
     }
 
     protected int countLineFromEmpty(int row, int col, int dr, int dc, PieceColor color) {
@@ -436,7 +804,7 @@ public class AI extends core.player.AI {
     @Override
     public void playGame(Game game) {
         super.playGame(game);
-        board = new Board();
         myColor = null;
+        zobristHash = 0;
     }
 }
\ No newline at end of file
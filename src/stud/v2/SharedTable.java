@@ -0,0 +1,77 @@
+package stud.v2;
+
+import core.game.Move;
+
+import java.util.Arrays;
+
+/**
+ * Lazy SMP 各搜索线程共用的无锁置换表
+ * 每项为两个 long：data 打包深度、界类型、分值与最佳着法，key 存 Zobrist 键与 data 的异或。
+ * 读时用 key ^ data 还原键并与查询键比较：两个字写入被其他线程打断而不一致时校验失败，按未命中处理，
+ * 因此读写都不需要加锁。
+ */
+final class SharedTable {
+
+    private static final int BITS = 20;
+    private static final int MASK = (1 << BITS) - 1;
+
+    // data 布局: [63]有效位 [59..51]第二子 [50..42]第一子 [41..40]界类型 [39..32]深度 [31..0]分值
+    private static final long VALID = 1L << 63;
+    private static final int NO_MOVE = 511;
+
+    private final long[] keys = new long[1 << BITS];
+    private final long[] data = new long[1 << BITS];
+
+    void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(data, 0);
+    }
+
+    /**
+     * 查询局面，未命中返回 0
+     */
+    long probe(long hash) {
+        int i = (int) hash & MASK;
+        long d = data[i];
+        return (keys[i] ^ d) == hash ? d : 0;
+    }
+
+    /**
+     * 写入局面；同一局面只被不低于原深度的结果覆盖，其他局面直接替换
+     */
+    void store(long hash, int depth, int value, int flag, Move best) {
+        int i = (int) hash & MASK;
+        long old = data[i];
+        if ((keys[i] ^ old) == hash && depth(old) > depth) return;
+
+        int m1 = best == null ? NO_MOVE : best.index1();
+        int m2 = best == null || best.index2() == -1 ? NO_MOVE : best.index2();
+        long d = VALID
+                | ((long) m2 << 51)
+                | ((long) m1 << 42)
+                | ((long) flag << 40)
+                | ((long) Math.min(depth, 255) << 32)
+                | (value & 0xFFFFFFFFL);
+        data[i] = d;
+        keys[i] = hash ^ d;
+    }
+
+    static int depth(long entry) {
+        return (int) (entry >>> 32) & 0xFF;
+    }
+
+    static int flag(long entry) {
+        return (int) (entry >>> 40) & 0x3;
+    }
+
+    static int value(long entry) {
+        return (int) entry;
+    }
+
+    static Move best(long entry) {
+        int m1 = (int) (entry >>> 42) & 0x1FF;
+        int m2 = (int) (entry >>> 51) & 0x1FF;
+        if (m1 == NO_MOVE) return null;
+        return new Move(m1, m2 == NO_MOVE ? -1 : m2);
+    }
+}
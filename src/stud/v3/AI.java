@@ -4,7 +4,16 @@ import core.board.Board;
 import core.board.PieceColor;
 import core.game.Game;
 import core.game.Move;
-
+import stud.common.DefenseSolver;
+import stud.common.PairSelector;
+import stud.common.StatePool;
+import stud.common.WindowTable;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.*;
 
 /**
@@ -18,26 +27,57 @@ public class AI extends core.player.AI {
 
     private PieceColor myColor;
     private final int[][] directions = {{0, 1}, {1, 0}, {1, 1}, {1, -1}};
+    // 本局的路表，从状态池租用，每步开始时与棋盘同步
+    private static final StatePool<WindowTable> TABLES = new StatePool<>(WindowTable::new, WindowTable::clear);
+    private WindowTable windows;
+    // 本局的单点评估缓存：棋子变化时只作废其周围的格子，其余评估跨回合复用
+    private static final StatePool<PointCache> CACHES = new StatePool<>(PointCache::new, PointCache::clear);
+    private PointCache pointCache;
+    // 本回合的候选点，同步棋盘时作废
+    private List<Integer> interestingPoints;
+    private final PairSelector pairSelector = new PairSelector();
 
     // 棋型分数常量 (精心调优，针对 V1)
-    private static final int SCORE_WIN = 100000000; // 连6
+    // 系统属性 stud.v3.weights 指定权重文件(TexelTuner 的输出)时，以文件中的值覆盖下面的默认值
+    private static final Properties WEIGHTS = loadWeights();
+    private static final int SCORE_WIN = weight("SCORE_WIN", 100000000); // 连6
     private static final int SCORE_BLOCK_WIN = 50000000;  // 阻挡对手连6
-    private static final int SCORE_MAKE_5 = 10000000;  // 制造连5 (必胜前兆)
+    private static final int SCORE_MAKE_5 = weight("SCORE_MAKE_5", 10000000);  // 制造连5 (必胜前兆)
     private static final int SCORE_BLOCK_5 = 5000000;   // 阻挡对手连5
-    private static final int SCORE_LIVE_4 = 1000000;   // 活4 (必杀)
-    private static final int SCORE_RUSH_4 = 50000;     // 冲4 (死4)
-    private static final int SCORE_LIVE_3 = 5000;      // 活3 (双活3的基础)
-    private static final int SCORE_SLEEP_3 = 500;       // 眠3
-    private static final int SCORE_LIVE_2 = 100;       // 活2
+    private static final int SCORE_LIVE_4 = weight("SCORE_LIVE_4", 1000000);   // 活4 (必杀)
+    private static final int SCORE_RUSH_4 = weight("SCORE_RUSH_4", 50000);     // 冲4 (死4)
+    private static final int SCORE_LIVE_3 = weight("SCORE_LIVE_3", 5000);      // 活3 (双活3的基础)
+    private static final int SCORE_SLEEP_3 = weight("SCORE_SLEEP_3", 500);       // 眠3
+    private static final int SCORE_LIVE_2 = weight("SCORE_LIVE_2", 100);       // 活2
+    // 进攻权重，鼓励进攻，但也别完全不顾防守
+    private static final double ATTACK_WEIGHT = Double.parseDouble(WEIGHTS.getProperty("ATTACK_WEIGHT", "1.2").trim());
+    private static final int LINK_BONUS = 5000;        // 两子协作加成
 
     public AI() {
         this.board = new Board();
     }
 
+    private static Properties loadWeights() {
+        Properties props = new Properties();
+        String file = System.getProperty("stud.v3.weights");
+        if (file != null) {
+            try (Reader in = Files.newBufferedReader(Paths.get(file), StandardCharsets.UTF_8)) {
+                props.load(in);
+            } catch (IOException e) {
+                throw new IllegalStateException("cannot read V3 weights from " + file, e);
+            }
+        }
+        return props;
+    }
+
+    private static int weight(String key, int fallback) {
+        String value = WEIGHTS.getProperty(key);
+        return value == null ? fallback : Integer.parseInt(value.trim());
+    }
+
     @Override
     public void playGame(Game game) {
         super.playGame(game);
-        this.board = new Board();
         this.myColor = null;
     }
 
@@ -46,11 +86,19 @@ public class AI extends core.player.AI {
         return "V3-TBS";
     }
 
+    @Override
+    public Move firstMove() {
+        this.board = StatePool.BOARDS.acquire(this);
+        return super.firstMove();
+    }
+
     @Override
     public Move findNextMove(Move opponentMove) {
+        this.board = StatePool.BOARDS.acquire(this);
         try {
             // 1. 同步
             if (isValidMove(opponentMove)) this.board.makeMove(opponentMove);
+            syncWindows();
 
             // 2. 颜色
             if (myColor == null) {
@@ -88,93 +136,51 @@ public class AI extends core.player.AI {
     }
 
     /**
-     * 寻找必须堵的点 (对手下这就赢了，或者连5了)
+     * 寻找必须堵的点：对手某条路再下两子内就能连6时，用最小命中集求出所有能挡住全部威胁的组合，
+     * 按我方进攻价值挑最好的一个；一子即可挡住时第二子用来进攻。
      */
     private Move findForcedBlock(PieceColor opp) {
-        List<Integer> empties = getInterestingPoints();
-        Set<Integer> killPoints = new HashSet<>();
-        Set<Integer> fatalPoints = new HashSet<>();
-
-        for (int p : empties) {
-            int threat = simulateThreatLevel(p, opp);
-            if (threat == 2) killPoints.add(p);      // 对手下这就赢
-            else if (threat == 1) fatalPoints.add(p); // 对手下这就连5
-        }
-
-        // 1. 必败点 (Kill): 必须堵
-        if (!killPoints.isEmpty()) {
-            List<Integer> list = new ArrayList<>(killPoints);
-            if (list.size() >= 2) return new Move(list.get(0), list.get(1)); // 双杀，必输无疑，挣扎一下
-
-            // 堵住必败点，第二手尝试堵必死点或进攻
-            int p1 = list.get(0);
-            int p2 = -1;
-            if (!fatalPoints.isEmpty()) p2 = fatalPoints.iterator().next();
-            else p2 = findBestSingleAttack(myColor, p1);
-            return new Move(p1, p2);
-        }
-
-        // 2. 必死点 (Fatal/连5): 必须堵
-        if (!fatalPoints.isEmpty()) {
-            List<Integer> list = new ArrayList<>(fatalPoints);
-            // 关键：如果有两个以上的点能成5，大概率是活四的两头，必须全堵
-            if (list.size() >= 2) return new Move(list.get(0), list.get(1));
-
-            // 只有一个点，堵住它
-            return new Move(list.get(0), findBestSingleAttack(myColor, list.get(0)));
+        List<int[]> blocks = windows.defenses(player(opp) ^ 1);
+        if (blocks == null) return null;
+
+        int[] block;
+        if (blocks.isEmpty()) {
+            // 两子挡不住，必输无疑，堵覆盖威胁最多的点挣扎一下
+            block = windows.mostCovering(player(opp) ^ 1);
+        } else {
+            DefenseSolver.rank(blocks, p -> evaluatePoint(p, myColor));
+            block = blocks.get(0);
         }
-        return null;
+        int p2 = block[1] >= 0 ? block[1] : findBestSingleAttack(myColor, block[0]);
+        return new Move(block[0], p2);
     }
 
     /**
      * 战术搜索：寻找得分最高的两步棋组合
-     * 复杂度控制：O(N^2) 太慢，我们采用贪心优化。
-     * 先找得分最高的 Top 10 个单点，然后在这些点里组合。
+     * 复杂度控制：全部候选点都参与组合，由 PairSelector 按单点分降序、以组合分上界剪枝，
+     * 只计算最优组合附近的少量组合，不必枚举全部 O(N^2) 对。
      */
     private Move findBestTacticalMove() {
         List<Integer> cands = getInterestingPoints();
         // 1. 给每个空位打分 (进攻分 + 防守分)
-        Map<Integer, Integer> pointScores = new HashMap<>();
-        for (int p : cands) {
+        int n = cands.size();
+        int[] cells = new int[n];
+        long[] pointScores = new long[n];
+        for (int i = 0; i < n; i++) {
+            int p = cands.get(i);
             int attack = evaluatePoint(p, myColor);
             int defense = evaluatePoint(p, getOpponent(myColor));
-            // 进攻权重 1.2，鼓励进攻，但也别完全不顾防守
-            pointScores.put(p, (int) (attack * 1.2 + defense));
+            cells[i] = p;
+            pointScores[i] = (long) (attack * ATTACK_WEIGHT + defense);
         }
 
-        // 2. 选出 Top 15 候选点
-        cands.sort((a, b) -> pointScores.get(b) - pointScores.get(a));
-        int limit = Math.min(cands.size(), 15);
-        List<Integer> topCands = cands.subList(0, limit);
-
-        // 3. 在 Top 候选点中穷举最佳组合
-        Move bestMove = null;
-        long maxScore = Long.MIN_VALUE;
-
-        // 这里我们模拟"下两子"，然后评估局面总分
-        for (int i = 0; i < topCands.size(); i++) {
-            for (int j = i + 1; j < topCands.size(); j++) {
-                int p1 = topCands.get(i);
-                int p2 = topCands.get(j);
-
-                // 组合分 = 单点分之和 + 协作加成
-                long currentScore = pointScores.get(p1) + pointScores.get(p2);
-
-                // 协作加成：如果两子靠得近，或者形成了连珠，加分
-                if (isConnected(p1, p2)) {
-                    // 简单模拟一下连线
-                    currentScore += calculateLinkBonus(p1, p2, myColor);
-                }
-
-                if (currentScore > maxScore) {
-                    maxScore = currentScore;
-                    bestMove = new Move(p1, p2);
-                }
-            }
-        }
+        // 2. 在全部候选点中找组合分最高的两子
+        // 组合分 = 单点分之和 + 协作加成(两子靠得近且在同一直线)，协作加成有上界，可按上界剪枝
+        List<PairSelector.Pair> best = pairSelector.select(cells, pointScores, n,
+                (p1, p2) -> isConnected(p1, p2) ? calculateLinkBonus(p1, p2, myColor) : 0, LINK_BONUS, 1);
 
-        if (bestMove == null) return getFallbackMove();
-        return bestMove;
+        if (best.isEmpty()) return getFallbackMove();
+        return new Move(best.get(0).a, best.get(0).b);
     }
 
     // 计算两子配合的加成 (这是产生双杀的关键)
@@ -191,7 +197,7 @@ public class AI extends core.player.AI {
         if (Math.abs(dr) == Math.abs(dc) || dr == 0 || dc == 0) {
             // 在一直线上，且距离小于 5 (isConnected 保证了距离)
             // 这意味着它们在构筑同一个杀招
-            bonus += 5000;
+            bonus += LINK_BONUS;
         }
         return bonus;
     }
@@ -200,6 +206,9 @@ public class AI extends core.player.AI {
      * 单点评估函数：评估在此处落子能形成的棋型
      */
     private int evaluatePoint(int p, PieceColor color) {
+        int player = player(color);
+        if (pointCache.has(p, player)) return pointCache.get(p, player);
+
         int r = p / 19, c = p % 19;
         int totalScore = 0;
 
@@ -207,6 +216,7 @@ public class AI extends core.player.AI {
             // 扫描该方向的棋型
             totalScore += evaluateDirection(r, c, d[0], d[1], color);
         }
+        pointCache.put(p, player, totalScore);
         return totalScore;
     }
 
@@ -257,27 +267,6 @@ public class AI extends core.player.AI {
         return 1;
     }
 
-    // --- 威胁模拟 ---
-    private int simulateThreatLevel(int pos, PieceColor opp) {
-        int r = pos / 19, c = pos % 19;
-        for (int[] d : directions) {
-            int count = 1;
-            int k = 1;
-            while (isValid(r + d[0] * k, c + d[1] * k) && this.board.get((r + d[0] * k) * 19 + c + d[1] * k) == opp) {
-                count++;
-                k++;
-            }
-            k = 1;
-            while (isValid(r - d[0] * k, c - d[1] * k) && this.board.get((r - d[0] * k) * 19 + c - d[1] * k) == opp) {
-                count++;
-                k++;
-            }
-            if (count >= 6) return 2; // 必杀
-            if (count == 5) return 1; // 必死
-        }
-        return 0;
-    }
-
     // --- 辅助方法 ---
 
     private Move safeReturn(Move move) {
@@ -307,20 +296,13 @@ public class AI extends core.player.AI {
         }
     }
 
+    /**
+     * 查路表：己方某条路已有4子以上且无敌子，补满即连6
+     */
     private Move findWinningMove(PieceColor color) {
-        List<Integer> cands = getInterestingPoints();
-        int limit = Math.min(cands.size(), 15);
-        for (int i = 0; i < limit; i++) {
-            for (int j = i + 1; j < limit; j++) {
-                int p1 = cands.get(i);
-                int p2 = cands.get(j);
-                this.board.makeMove(new Move(p1, p2));
-                boolean win = checkWin(color);
-                this.board.undo();
-                if (win) return new Move(p1, p2);
-            }
-        }
-        return null;
+        int[] cells = windows.winningCells(player(color));
+        if (cells == null) return null;
+        return new Move(cells[0], cells.length > 1 ? cells[1] : findBestSingleAttack(color, cells[0]));
     }
 
     private int findBestSingleAttack(PieceColor me, int exclude) {
@@ -338,7 +320,11 @@ public class AI extends core.player.AI {
         return best != -1 ? best : getAnyEmpty(exclude);
     }
 
+    /**
+     * 候选点(已有棋子周围两格内的空位)，一回合内棋盘不变，只计算一次
+     */
     private List<Integer> getInterestingPoints() {
+        if (interestingPoints != null) return interestingPoints;
         Set<Integer> points = new HashSet<>();
         boolean hasStone = false;
         for (int i = 0; i < 361; i++) {
@@ -355,7 +341,8 @@ public class AI extends core.player.AI {
             points.add(180);
             points.add(181);
         }
-        return new ArrayList<>(points);
+        interestingPoints = Collections.unmodifiableList(new ArrayList<>(points));
+        return interestingPoints;
     }
 
     private Move getFallbackMove() {
@@ -371,20 +358,26 @@ public class AI extends core.player.AI {
         return -1;
     }
 
-    private boolean checkWin(PieceColor c) {
-        for (int i = 0; i < 361; i++)
-            if (this.board.get(i) == c) {
-                int r = i / 19, col = i % 19;
-                for (int[] d : directions) {
-                    int cnt = 1;
-                    for (int k = 1; k < 6; k++)
-                        if (isValid(r + d[0] * k, col + d[1] * k) && this.board.get((r + d[0] * k) * 19 + col + d[1] * k) == c)
-                            cnt++;
-                        else break;
-                    if (cnt >= 6) return true;
-                }
+    /**
+     * 将框架棋盘上的变化(对手落子、己方落子、开局)同步到路表，并作废变化格周围的单点评估与本回合候选点
+     */
+    private void syncWindows() {
+        windows = TABLES.acquire(this);
+        pointCache = CACHES.acquire(this);
+        interestingPoints = null;
+        for (int i = 0; i < 361; i++) {
+            PieceColor c = this.board.get(i);
+            int stone = c == PieceColor.EMPTY ? WindowTable.EMPTY : player(c);
+            if (windows.stone(i) != stone) {
+                windows.set(i, stone);
+                pointCache.invalidateAround(i);
             }
-        return false;
+        }
+    }
+
+    // 路表中的玩家编号：黑 0、白 1
+    private int player(PieceColor c) {
+        return c == PieceColor.BLACK ? 0 : 1;
     }
 
     private PieceColor getOpponent(PieceColor c) {
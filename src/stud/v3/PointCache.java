@@ -0,0 +1,58 @@
+package stud.v3;
+
+import java.util.Arrays;
+
+/**
+ * V3 的单点评估缓存
+ * evaluatePoint 只看该点4个方向上的连子与两端，某格的变化只会影响它所在4条线上前后5格以内的点
+ * (更远处要隔着5个连续同色子，已是连6，与端点无关)。
+ * 因此每步只把新变化棋子周围的这些格子作废，其余格子的评估跨回合复用；同一回合内的重复查询全部命中。
+ */
+final class PointCache {
+
+    private static final int LENGTH = 19;
+    private static final int TOTAL = LENGTH * LENGTH;
+    private static final int REACH = 5;
+    private static final int[][] DIRECTIONS = {{0, 1}, {1, 0}, {1, 1}, {1, -1}};
+
+    // [cell][color]，color 为路表编号(黑 0、白 1)
+    private final int[][] values = new int[TOTAL][2];
+    private final boolean[][] valid = new boolean[TOTAL][2];
+
+    void clear() {
+        for (boolean[] v : valid) Arrays.fill(v, false);
+    }
+
+    boolean has(int cell, int color) {
+        return valid[cell][color];
+    }
+
+    int get(int cell, int color) {
+        return values[cell][color];
+    }
+
+    void put(int cell, int color, int value) {
+        values[cell][color] = value;
+        valid[cell][color] = true;
+    }
+
+    /**
+     * 某格落子或提子后，作废它所在4条线上前后5格以内的评估
+     */
+    void invalidateAround(int cell) {
+        int r = cell / LENGTH, c = cell % LENGTH;
+        valid[cell][0] = valid[cell][1] = false;
+        for (int[] d : DIRECTIONS) {
+            for (int k = 1; k <= REACH; k++) {
+                invalidate(r + d[0] * k, c + d[1] * k);
+                invalidate(r - d[0] * k, c - d[1] * k);
+            }
+        }
+    }
+
+    private void invalidate(int r, int c) {
+        if (r < 0 || r >= LENGTH || c < 0 || c >= LENGTH) return;
+        valid[r * LENGTH + c][0] = false;
+        valid[r * LENGTH + c][1] = false;
+    }
+}
@@ -4,14 +4,21 @@ import core.board.Board;
 import core.board.PieceColor;
 import core.game.Game;
 import core.game.Move;
+import core.game.ui.Configuration;
+import stud.common.DefenseSolver;
+import stud.common.MoveClock;
+import stud.common.PairSelector;
+import stud.common.SearchBudget;
+import stud.common.StatePool;
+import stud.common.WindowTable;
 
 import java.util.*;
 
 /**
  * V4: Hybrid MCTS + Alpha-Beta
  * 核心策略：
- * 1. 开局(前5回合)使用Alpha-Beta剪枝快速搜索
- * 2. 中后期使用MCTS进行深度探索
+ * 1. 每步按候选点数、威胁与剩余用时动态选择引擎：强制应着、连续威胁求解、Alpha-Beta 或 MCTS
+ * 2. MCTS 叶节点以快速模拟(Playout)给出胜负
  * 3. 基于"路"的状态评估，考虑连子数和两端开放性
  * 4. 增量更新棋盘状态，提高效率
  */
@@ -23,28 +30,35 @@ public class AI extends core.player.AI {
 
     // MCTS参数
     private static final int DEPTH = 10;
-    private static final double BASE_C = 1.5;
-    private static final double A = 0.3;
-    private static final double K = 0.2;
     private static final long TIME_LIMIT_MS = 2800; // 时间限制
 
-    // 评估权重表 - 自己的棋型
-    private static final long[][] VIGILANCE_SELF = {
-            {1, 1, 1}, {1, 1, 1}, {1, 1, 3}, {1, 3, 12}, {1, 100, 10030}, {1, 10080, 10080}
-    };
-    // 评估权重表 - 对手的棋型
-    private static final long[][] VIGILANCE_OPP = {
-            {1, 1, 1}, {1, 1, 1}, {1, 1, 2}, {1, 4, 10}, {1, 110, 10100}, {1, 10050, 10100}
-    };
-    // 跳连权重 - 自己
-    private static final long[][] HOPED_SELF = {
-            {1, 1, 1}, {1, 1, 1}, {1, 1, 1}, {1, 3, 5}, {1, 115, 120}, {900, 960, 1050}
-    };
-    // 跳连权重 - 对手
-    private static final long[][] HOPED_OPP = {
-            {1, 1, 1}, {1, 1, 1}, {1, 1, 1}, {1, 2, 4}, {1, 110, 120}, {900, 940, 1050}
-    };
-
+    // 引擎选择参数
+    private static final int AB_MAX_CANDIDATES = 40;   // 候选点不超过此数时用Alpha-Beta
+    private static final int THREAT_DEPTH = 4;         // 连续威胁求解的进攻步数
+    private static final int THREAT_BUDGET_DIVISOR = 4; // 威胁求解最多占本步用时的比例
+    private static final long PANIC_BANK_MS = 5000;    // 剩余总时间低于此值时即时应着
+    private static final int MIN_MOVES_LEFT = 8;
+    private static final int AB_DEPTH = 3;             // Alpha-Beta 的搜索层数(含根节点)
+
+    // 固定搜索量(见 SearchBudget)：-Dstud.v4.simulations 为 MCTS 每步模拟次数(未设时取 FIXED_SIMULATIONS)，
+    // -Dstud.v4.nodes 为 Alpha-Beta 每步节点数，威胁求解另有其 1/THREAT_BUDGET_DIVISOR(未设时取 FIXED_THREAT_NODES，
+    // 威胁求解的分支很宽，不能不限)，-Dstud.v4.depth 为 Alpha-Beta 层数。
+    // 设定后不看时钟，快速模拟的种子取自局面，同一对局过程总是得到同一着法
+    private static final SearchBudget BUDGET = SearchBudget.configured("stud.v4");
+    private static final long FIXED_SIMULATIONS = 1000;
+    private static final long FIXED_THREAT_NODES = 20000;
+    private static final long PLAYOUT_SEED = 0x5DEECE66DL;
+    // 计时方式：-Dstud.v4.clock=cpu 时每步的搜索时间按搜索线程的 CPU 时间计(见 MoveClock)，默认墙钟。
+    // 框架的对局计时器是墙钟，所以本局总用时与即时应着的阈值始终按墙钟计，CPU 计时下每步也不会把总时间用到 PANIC_BANK_MS 以下
+    private static final MoveClock.Kind CLOCK = MoveClock.Kind.configured("stud.v4");
+
+    // Alpha-Beta 每层的候选格数与搜索的组合数：由 PairSelector 从候选格中选出组合分最高的若干组合
+    private static final int CANDIDATE_WIDTH = 60;
+    private static final int PAIR_LIMIT = 105;
+    // 两子在同一条无敌子的路上时的配合分，约等于一个活三
+    private static final long PAIR_LINK_BONUS = 12;
+
+    // 探索常数与棋型权重表见 Params，可由参数文件或调参程序替换
     private static final long WIN_SCORE = 314159265357L;
     private static final double VIGILANCE_LIMIT = 1000.0;
     private static final int[] BREADTH = {2, 3, 3, 4, 4, 5, 5, 6, 6, 8, 8, 12, 12};
@@ -58,60 +72,130 @@ public class AI extends core.player.AI {
     private static final int BLANK = 2;
     private static final int OUTSIDE = 3;
 
+    // Zobrist置换键: [x][y][player]，另有一个轮走方键
+    private static final long[][][] ZOBRIST = new long[LENGTH][LENGTH][2];
+    private static final long SIDE_KEY;
+
+    static {
+        Random rand = new Random(20240601L);
+        for (int x = 0; x < LENGTH; x++) {
+            for (int y = 0; y < LENGTH; y++) {
+                ZOBRIST[x][y][SELF] = rand.nextLong();
+                ZOBRIST[x][y][OPP] = rand.nextLong();
+            }
+        }
+        SIDE_KEY = rand.nextLong();
+    }
+
+    // 空棋盘模板与对局状态池：每局开始时从模板就地复制，不再重新分配。
+    // 模板的评估值取决于权重表，所以每组参数各有一个池；参数不再使用时池随之回收
+    private static final Map<Params, StatePool<Position>> POOLS = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private final Params params;
+    private final String tag;
+    private final StatePool<Position> positions;
+
     private PieceColor myColor;
     private int turnCount = 0;
-    private long startTime;
+    private MoveClock clock;                    // 本步计时
+    private long moveBudgetMs = TIME_LIMIT_MS; // 本步可用时间
+    private long timeUsedMs;                    // 本局已用时间(墙钟)
+    private long moveStartMs;                   // 本步开始的墙钟时间
+    private long wallLimitMs;                   // CPU 计时下本步墙钟时间的上限
+    private long nodes;                         // 本步 Alpha-Beta 与威胁求解的节点数
+    private long simulations;                   // 本步 MCTS 模拟次数
+
+    private enum Engine {FORCED, THREAT, ALPHA_BETA, MCTS}
 
-    // 棋盘状态
+    private Map<Engine, Integer> engineCounts = new EnumMap<>(Engine.class);
+
+    // 棋盘状态(引用本局租用的 Position)
+    private Position position;
+    private Game positionGame;
     private int[][] boardState;          // 每个位置的玩家
     private State[][][][] allStates;     // 每个位置在4个方向上的状态[x][y][dir][player]
     private long[][][] evaluations;       // 每个位置的评估值[x][y][player]
     private TreeSet<MCTSMove> moveSet;   // 候选移动集合
+    private long hashKey;                // 当前局面的Zobrist键
+
+    // MCTS置换表: 同一局面(含轮走方)只保留一个节点，树变为DAG
+    private Map<Long, Node> nodeTable;
+    // 叶节点快速模拟
+    private Playout playout;
+    // 每条路上的棋子数与双方威胁，随 updateBoard 增量维护
+    private WindowTable windows;
+    // Alpha-Beta 的杀手/历史/应着表，随本局保留
+    private MoveOrdering ordering;
+    private final PairSelector pairSelector = new PairSelector();
+    private int lastOpponentPair = -1;   // 对方上一步的组合编码，根节点查应着表用
 
     public AI() {
+        this(Params.configured(), null);
+    }
+
+    /**
+     * @param params 搜索与评估参数
+     * @param tag    名字后缀，同场比较多组参数时用于区分棋手，可为 null
+     */
+    public AI(Params params, String tag) {
         this.board = new Board();
+        this.params = params;
+        this.tag = tag;
+        this.positions = POOLS.computeIfAbsent(params, p -> {
+            // 回收函数只持有模板，不能引用参数对象，否则弱引用的键永远不会被回收
+            Position template = Position.empty(p);
+            return new StatePool<>(Position::new, position -> position.resetFrom(template));
+        });
+    }
+
+    /**
+     * 现存的状态池数(每组仍被棋手使用的参数一个)，调参程序用它检查旧参数是否已被回收
+     */
+    public static int pools() {
+        return POOLS.size();
     }
 
     @Override
     public void playGame(Game game) {
         super.playGame(game);
-        this.board = new Board();
         this.myColor = null;
         this.turnCount = 0;
-        initializeBoard();
+        this.timeUsedMs = 0;
+        this.moveBudgetMs = TIME_LIMIT_MS;
+        this.engineCounts = new EnumMap<>(Engine.class);
+        this.position = null;
+        this.lastOpponentPair = -1;
+    }
+
+    @Override
+    public Move firstMove() {
+        this.board = StatePool.BOARDS.acquire(this);
+        return super.firstMove();
     }
 
     @Override
     public String name() {
-        return "V4-MCTS";
+        return tag == null ? "V4-MCTS" : "V4-MCTS-" + tag;
     }
 
+    /**
+     * 租用本局的棋盘状态(已由状态池从空棋盘模板就地重置)
+     */
     private void initializeBoard() {
-        boardState = new int[LENGTH][LENGTH];
-        allStates = new State[LENGTH][LENGTH][4][2];
-        evaluations = new long[LENGTH][LENGTH][2];
-        moveSet = new TreeSet<>();
-
-        for (int x = 0; x < LENGTH; x++) {
-            for (int y = 0; y < LENGTH; y++) {
-                boardState[x][y] = BLANK;
-                for (int dir = 0; dir < 4; dir++) {
-                    allStates[x][y][dir][SELF] = new State(SELF);
-                    allStates[x][y][dir][OPP] = new State(OPP);
-
-                    // 初始化边界状态
-                    initBorderState(x, y, dir, SELF);
-                    initBorderState(x, y, dir, OPP);
-                }
-                evaluateState(x, y, SELF);
-                evaluateState(x, y, OPP);
-                moveSet.add(new MCTSMove(x, y, Math.max(evaluations[x][y][SELF], evaluations[x][y][OPP])));
-            }
-        }
+        position = positions.acquire(this);
+        positionGame = game();
+        boardState = position.boardState;
+        allStates = position.allStates;
+        evaluations = position.evaluations;
+        moveSet = position.moveSet;
+        nodeTable = position.nodeTable;
+        playout = position.playout;
+        windows = position.windows;
+        ordering = position.ordering;
+        hashKey = 0;
     }
 
-    private void initBorderState(int x, int y, int dir, int player) {
-        State state = allStates[x][y][dir][player];
+    private static void initBorderState(State state, int x, int y, int dir) {
         int dx = DIR[dir][0], dy = DIR[dir][1];
 
         // 左侧
@@ -134,11 +218,12 @@ public class AI extends core.player.AI {
 
     @Override
     public Move findNextMove(Move opponentMove) {
-            myColor = (opponentMove == null || opponentMove.index1() == -1)
-                    ? PieceColor.BLACK : PieceColor.WHITE;
+            // 执黑执白由裁判在开局时设定；框架只在有对手着法时调用本方法，不能据此推断颜色
+            myColor = getColor();
 
             // 初始化 boardState
-            if (boardState == null) {
+            this.board = StatePool.BOARDS.acquire(this);
+            if (position == null || positionGame != game()) {
                 initializeBoard();
             }
 
@@ -158,7 +243,10 @@ public class AI extends core.player.AI {
 
         this.board.draw();
         try {
-            startTime = System.currentTimeMillis();
+            clock = MoveClock.start(CLOCK);
+            moveStartMs = System.currentTimeMillis();
+            nodes = 0;
+            simulations = 0;
 
             // 同步对手落子
             if (isValidMove(opponentMove)) {
@@ -169,6 +257,8 @@ public class AI extends core.player.AI {
                 if (opponentMove.index2() != -1) {
                     updateBoard(opponentMove.index2() / LENGTH, opponentMove.index2() % LENGTH, OPP);
                 }
+                lastOpponentPair = opponentMove.index2() == -1 ? -1
+                        : MoveOrdering.pairCode(opponentMove.index1(), opponentMove.index2());
             }
 
 
@@ -183,14 +273,10 @@ public class AI extends core.player.AI {
                 return start;
             }
 
-            Move bestMove;
-            if (turnCount <= 4) {
-                // 前几回合使用Alpha-Beta
-                bestMove = alphaBetaSearch();
-            } else {
-                // 后续使用MCTS
-                bestMove = mctsSearch();
-            }
+            moveBudgetMs = computeMoveBudget();
+            wallLimitMs = Configuration.TIME_LIMIT * 1000L - timeUsedMs - PANIC_BANK_MS;
+            Move bestMove = searchWithSelectedEngine();
+            timeUsedMs += System.currentTimeMillis() - moveStartMs;
             printBoard();
             return safeReturn(bestMove);
 
@@ -238,55 +324,182 @@ public class AI extends core.player.AI {
         return String.format("(%d, %c)", visualRow, visualCol);
     }
 
+    // ==================== 引擎选择 ====================
+
+    /**
+     * 按局面复杂度与剩余用时为本步选择搜索引擎：
+     * 1. FORCED: 能直接连六、唯一的防守组合或用时将尽时，立即应着
+     * 2. THREAT: 己方有攻势(3子以上的活路)时先做连续威胁求解，找到必胜序列即走
+     * 3. ALPHA_BETA: 候选点较少(开局、局部战斗)时全宽搜索
+     * 4. MCTS: 其余复杂局面
+     * 每次决策都打印一行日志，便于统计与对比各引擎的表现。
+     */
+    private Move searchWithSelectedEngine() {
+        int candidates = countCandidates();
+        int ownThreats = windows.threatCount(SELF);
+        int oppThreats = windows.threatCount(OPP);
+        long bank = Configuration.TIME_LIMIT * 1000L - timeUsedMs;
+
+        Engine engine;
+        Move move = null;
+        int[] win = windows.winningCells(SELF);
+        List<int[]> defenses = windows.defenses(SELF);
+        if (win != null) {
+            engine = Engine.FORCED;
+            move = toMove(win);
+        } else if (defenses != null && defenses.size() == 1 && defenses.get(0)[1] >= 0) {
+            engine = Engine.FORCED;
+            move = toMove(defenses.get(0));
+        } else if (!BUDGET.fixed() && bank < PANIC_BANK_MS) {
+            engine = Engine.FORCED;
+            move = quickMove();
+        } else {
+            engine = null;
+            if (defenses == null && windows.attackWindows(SELF) > 0) {
+                ThreatSolver solver = BUDGET.fixed()
+                        ? new ThreatSolver(windows, null, 0, BUDGET.nodes() == 0
+                                ? FIXED_THREAT_NODES : Math.max(1, BUDGET.nodes() / THREAT_BUDGET_DIVISOR))
+                        : new ThreatSolver(windows, clock, moveBudgetMs / THREAT_BUDGET_DIVISOR, 0);
+                int[] pair = solver.solve(SELF, THREAT_DEPTH);
+                nodes += solver.nodes();
+                if (pair != null) {
+                    engine = Engine.THREAT;
+                    move = toMove(pair);
+                }
+            }
+            if (engine == null) {
+                engine = candidates <= AB_MAX_CANDIDATES ? Engine.ALPHA_BETA : Engine.MCTS;
+                move = engine == Engine.ALPHA_BETA ? alphaBetaSearch() : mctsSearch();
+            }
+        }
+
+        engineCounts.merge(engine, 1, Integer::sum);
+        long elapsed = clock.elapsedNanos();
+        System.out.printf("[V4] turn=%d engine=%s candidates=%d threats=%d/%d bank=%dms budget=%s used=%dms"
+                        + " nodes=%d sims=%d nps=%d counts=%s%n",
+                turnCount, engine, candidates, ownThreats, oppThreats, bank,
+                BUDGET.fixed() ? BUDGET.toString() : moveBudgetMs + "ms", elapsed / 1000000, nodes, simulations,
+                SearchBudget.perSecond(nodes + simulations, elapsed), engineCounts);
+        return move;
+    }
+
+    /**
+     * 本步可用时间：剩余总时间平均分给预计剩余的回合，且不超过 TIME_LIMIT_MS
+     */
+    private long computeMoveBudget() {
+        long bank = Configuration.TIME_LIMIT * 1000L - timeUsedMs;
+        int movesLeft = Math.max(MIN_MOVES_LEFT, Configuration.MAX_STEP / 2 - turnCount);
+        return Math.max(1, Math.min(TIME_LIMIT_MS, bank / movesLeft));
+    }
+
+    /**
+     * 用时将尽时的即时应着：取评估最高的两个空位
+     */
+    private Move quickMove() {
+        List<MCTSMove> top = getTopMoves(0);
+        if (top.size() < 2) return getFallbackMove();
+        return new Move(top.get(0).x * LENGTH + top.get(0).y, top.get(1).x * LENGTH + top.get(1).y);
+    }
+
+    private Move toMove(int[] cells) {
+        int p1 = cells[0];
+        int p2 = cells.length > 1 && cells[1] >= 0 ? cells[1] : -1;
+        if (p2 < 0) {
+            for (MCTSMove m : getTopMoves(0)) {
+                int p = m.x * LENGTH + m.y;
+                if (p != p1) {
+                    p2 = p;
+                    break;
+                }
+            }
+        }
+        if (p2 < 0) p2 = getAnyEmpty(p1);
+        return new Move(p1, p2);
+    }
+
     // ==================== MCTS 实现 ====================
 
     private Move mctsSearch() {
-        Node root = new Node(SELF, null, null, null);
-
-        while (!isTimeout()) {
-            mcts(root, DEPTH);
+        nodeTable.clear();
+        Node root = getNode(nodeKey(hashKey, SELF), SELF);
+
+        if (BUDGET.fixed()) {
+            playout.reseed(hashKey ^ PLAYOUT_SEED);
+            long limit = BUDGET.simulations() > 0 ? BUDGET.simulations() : FIXED_SIMULATIONS;
+            while (simulations < limit) {
+                mcts(root, DEPTH);
+                simulations++;
+            }
+        } else {
+            while (!isTimeout()) {
+                mcts(root, DEPTH);
+                simulations++;
+            }
         }
 
-        if (root.children.isEmpty()) {
+        if (root.edges.isEmpty()) {
+            nodeTable.clear();
             return getFallbackMove();
         }
 
-        // 选择访问次数最多的节点
-        Node best = Collections.max(root.children, Comparator.comparingInt(n -> n.visitedTimes));
+        // 选择访问次数最多的边
+        Edge best = Collections.max(root.edges, Comparator.comparingInt(e -> e.visitedTimes));
+        nodeTable.clear();
         int p1 = best.move1.x * LENGTH + best.move1.y;
         int p2 = best.move2.x * LENGTH + best.move2.y;
         return new Move(p1, p2);
     }
 
+    private long nodeKey(long boardKey, int player) {
+        return player == OPP ? boardKey ^ SIDE_KEY : boardKey;
+    }
+
+    /**
+     * 从置换表取节点，不存在则新建。不同着法顺序到达的同一局面共享一份统计。
+     */
+    private Node getNode(long key, int player) {
+        Node node = nodeTable.get(key);
+        if (node == null) {
+            node = new Node(player);
+            nodeTable.put(key, node);
+        }
+        return node;
+    }
+
     private int mcts(Node node, int depth) {
-        double dynamicC = A * Math.exp(-K * depth);
+        double dynamicC = params.a * Math.exp(-params.k * depth);
         int nodePlayer = node.player;
 
-        if (node.visitedTimes == 0) {
+        boolean firstVisit = node.visitedTimes == 0;
+        if (firstVisit) {
             // 扩展节点
             if (node.end == BLANK && depth > 0) {
                 expandNode(node, nodePlayer, depth, dynamicC);
             }
         }
 
-        if (node.children.isEmpty()) {
-            node.updateNode(node.end);
-            return node.end;
+        // 新扩展的节点或叶节点：终局直接回传，否则做一次快速模拟
+        if (firstVisit || node.edges.isEmpty()) {
+            int result = node.end == BLANK ? playout.run(boardState, evaluations, windows.counts(), nodePlayer) : node.end;
+            node.updateNode(result);
+            return result;
         }
 
         // UCB选择
-        Node decision = selectChild(node, dynamicC);
+        Edge decision = selectEdge(node, dynamicC);
 
         // 模拟落子
         updateBoard(decision.move1.x, decision.move1.y, nodePlayer);
         updateBoard(decision.move2.x, decision.move2.y, nodePlayer);
 
-        int loser = mcts(decision, depth - 1);
+        int loser = mcts(decision.child, depth - 1);
 
         // 撤销落子
         updateBoard(decision.move2.x, decision.move2.y, BLANK);
         updateBoard(decision.move1.x, decision.move1.y, BLANK);
 
+        decision.visitedTimes += 2;
+        node.edgeVisits += 2;
         node.updateNode(loser);
         return loser;
     }
@@ -294,6 +507,11 @@ public class AI extends core.player.AI {
     private void expandNode(Node node, int nodePlayer, int depth, double dynamicC) {
         List<MCTSMove> moves1 = getTopMoves(depth);
         Set<Long> visited = new HashSet<>();
+        long baseKey = hashKey;
+
+        if (expandForced(node, nodePlayer, moves1, baseKey)) {
+            return;
+        }
 
         for (int i = 0; i < moves1.size(); i++) {
             MCTSMove move1 = moves1.get(i);
@@ -313,9 +531,7 @@ public class AI extends core.player.AI {
                 }
                 if (move2 == null) move2 = move1; // 极端情况
 
-                Node winChild = new Node(nodePlayer ^ 1, move1, move2, node);
-                winChild.end = nodePlayer;
-                node.children.add(winChild);
+                addEdge(node, nodePlayer, baseKey, move1, move2, true);
                 break;
             }
 
@@ -335,12 +551,10 @@ public class AI extends core.player.AI {
 
                     if (evaluations[move2.x][move2.y][nodePlayer] >= WIN_SCORE) {
                         win = true;
-                        Node winChild = new Node(nodePlayer ^ 1, move1, move2, node);
-                        winChild.end = nodePlayer;
-                        node.children.add(winChild);
+                        addEdge(node, nodePlayer, baseKey, move1, move2, true);
                         break;
                     } else {
-                        node.children.add(new Node(nodePlayer ^ 1, move1, move2, node));
+                        addEdge(node, nodePlayer, baseKey, move1, move2, false);
                     }
                 }
             }
@@ -350,19 +564,102 @@ public class AI extends core.player.AI {
         }
     }
 
-    private Node selectChild(Node node, double dynamicC) {
-        Node decision = null;
+    /**
+     * 有威胁时的强制着法扩展：
+     * 1. 己方有威胁路，直接连六(反杀)
+     * 2. 对方有威胁路，只扩展能挡住全部威胁的落子组合；只需一子时第二子取评估最高的候选点
+     * 对方威胁两子挡不住(必败)或双方都无威胁时返回 false，按常规扩展。
+     */
+    private boolean expandForced(Node node, int nodePlayer, List<MCTSMove> moves1, long baseKey) {
+        int[] win = windows.winningCells(nodePlayer);
+        if (win != null) {
+            MCTSMove move1 = toMCTSMove(win[0]);
+            MCTSMove move2 = win.length > 1 ? toMCTSMove(win[1]) : firstOther(moves1, win[0], move1);
+            addEdge(node, nodePlayer, baseKey, move1, move2, true);
+            return true;
+        }
+
+        List<int[]> defenses = windows.defenses(nodePlayer);
+        if (defenses == null || defenses.isEmpty()) {
+            return false;
+        }
+        // 挡法按本方在该点的进攻价值排序，先扩展的边先被访问
+        DefenseSolver.rank(defenses, p -> (int) Math.min(evaluations[p / LENGTH][p % LENGTH][nodePlayer], Integer.MAX_VALUE));
+        Set<Long> visited = new HashSet<>();
+        for (int[] pair : defenses) {
+            MCTSMove move1 = toMCTSMove(pair[0]);
+            if (pair[1] >= 0) {
+                if (visited.add(pairKey(pair[0], pair[1]))) {
+                    addEdge(node, nodePlayer, baseKey, move1, toMCTSMove(pair[1]), false);
+                }
+                continue;
+            }
+            for (MCTSMove move2 : moves1) {
+                int p2 = move2.x * LENGTH + move2.y;
+                if (p2 == pair[0] || boardState[move2.x][move2.y] != BLANK) continue;
+                if (visited.add(pairKey(pair[0], p2))) {
+                    addEdge(node, nodePlayer, baseKey, move1, move2, false);
+                }
+            }
+        }
+        return !node.edges.isEmpty();
+    }
+
+    private long pairKey(int p1, int p2) {
+        return (long) Math.min(p1, p2) * TOTAL + Math.max(p1, p2);
+    }
+
+    private MCTSMove toMCTSMove(int pos) {
+        int x = pos / LENGTH, y = pos % LENGTH;
+        return new MCTSMove(x, y, Math.max(evaluations[x][y][SELF], evaluations[x][y][OPP]));
+    }
+
+    private MCTSMove firstOther(List<MCTSMove> moves, int exclude, MCTSMove fallback) {
+        for (MCTSMove m : moves) {
+            if (m.x * LENGTH + m.y != exclude && boardState[m.x][m.y] == BLANK) return m;
+        }
+        return fallback;
+    }
+
+    /**
+     * 添加一条边，子节点经置换表共享。
+     * baseKey 为落下 move1、move2 之前的局面键。
+     */
+    private void addEdge(Node node, int nodePlayer, long baseKey, MCTSMove move1, MCTSMove move2, boolean win) {
+        long boardKey = baseKey;
+        if (move1 != move2) {
+            boardKey ^= ZOBRIST[move1.x][move1.y][nodePlayer] ^ ZOBRIST[move2.x][move2.y][nodePlayer];
+        } else {
+            boardKey ^= ZOBRIST[move1.x][move1.y][nodePlayer];
+        }
+        Node child = getNode(nodeKey(boardKey, nodePlayer ^ 1), nodePlayer ^ 1);
+        if (win) {
+            child.end = nodePlayer;
+        }
+        node.edges.add(new Edge(move1, move2, child));
+    }
+
+    /**
+     * DAG上的UCB选择：
+     * 胜率取子节点的共享统计(汇总了所有父节点的访问)，
+     * 探索项使用本条边的访问次数与本节点经由各边的总访问次数，
+     * 避免子节点因其他父节点的访问而在此处被低估探索。
+     */
+    private Edge selectEdge(Node node, double dynamicC) {
+        Edge decision = null;
         double maxUCB = -1;
+        double logTotal = Math.log(Math.max(1, node.edgeVisits));
 
-        for (Node child : node.children) {
-            if (child.visitedTimes == 0) {
-                return child;
+        for (Edge edge : node.edges) {
+            if (edge.visitedTimes == 0) {
+                return edge;
             }
+            Node child = edge.child;
             double ucb = (double) child.winTimes / child.visitedTimes +
-                    dynamicC * Math.sqrt(Math.log(node.visitedTimes) / child.visitedTimes);
+                    dynamicC * Math.sqrt(logTotal / edge.visitedTimes);
             if (ucb > maxUCB) {
                 maxUCB = ucb;
-                decision = child;
+                decision = edge;
             }
         }
         return decision;
@@ -388,100 +685,141 @@ public class AI extends core.player.AI {
     // ==================== Alpha-Beta 实现 ====================
 
     private Move alphaBetaSearch() {
-        List<int[]> candidates = getAlphaBetaCandidates();
-        if (candidates.size() < 2) {
+        ordering.age();
+        int[] pairs = candidatePairs(SELF, 0, lastOpponentPair);
+        if (pairs.length == 0) {
             return getFallbackMove();
         }
+        int bestPair = pairs[0];
+        int bestScore = Integer.MIN_VALUE + 1;
+        int depth = BUDGET.depth() > 0 ? BUDGET.depth() : AB_DEPTH;
 
-        int[] bestMove = new int[4];
-        int bestScore = Integer.MIN_VALUE;
-
-        int limit = Math.min(candidates.size(), 15);
-        for (int i = 0; i < limit; i++) {
-            int[] p1 = candidates.get(i);
-            if (boardState[p1[0]][p1[1]] != BLANK) continue;
-
-            updateBoard(p1[0], p1[1], SELF);
-
-            for (int j = i + 1; j < limit; j++) {
-                int[] p2 = candidates.get(j);
-                if (boardState[p2[0]][p2[1]] != BLANK) continue;
-
-                updateBoard(p2[0], p2[1], SELF);
+        for (int code : pairs) {
+            int p1 = code / TOTAL, p2 = code % TOTAL;
+            updateBoard(p1 / LENGTH, p1 % LENGTH, SELF);
+            updateBoard(p2 / LENGTH, p2 % LENGTH, SELF);
 
-                int score = -alphaBeta(Integer.MIN_VALUE + 1, Integer.MAX_VALUE, OPP, 2);
+            int score = -alphaBeta(Integer.MIN_VALUE + 1, -bestScore, OPP, depth - 1, 1, code);
 
-                updateBoard(p2[0], p2[1], BLANK);
+            updateBoard(p2 / LENGTH, p2 % LENGTH, BLANK);
+            updateBoard(p1 / LENGTH, p1 % LENGTH, BLANK);
 
-                if (score > bestScore) {
-                    bestScore = score;
-                    bestMove[0] = p1[0];
-                    bestMove[1] = p1[1];
-                    bestMove[2] = p2[0];
-                    bestMove[3] = p2[1];
-                }
-
-                if (isTimeout()) break;
+            if (score > bestScore) {
+                bestScore = score;
+                bestPair = code;
             }
-
-            updateBoard(p1[0], p1[1], BLANK);
             if (isTimeout()) break;
         }
 
-        return new Move(bestMove[0] * LENGTH + bestMove[1], bestMove[2] * LENGTH + bestMove[3]);
+        int p1 = bestPair / TOTAL, p2 = bestPair % TOTAL;
+        return new Move(p1, p2);
     }
 
-    private int alphaBeta(int alpha, int beta, int player, int depth) {
-        if (isTimeout() || depth == 0) {
+    /**
+     * 负极大值 Alpha-Beta
+     *
+     * @param ply      距根节点的层数，用于杀手表
+     * @param prevPair 上一步(对方)的组合编码，用于应着表
+     */
+    private int alphaBeta(int alpha, int beta, int player, int depth, int ply, int prevPair) {
+        nodes++;
+        if (depth == 0 || isTimeout()) {
             return evaluateBoard(player);
         }
 
-        List<int[]> candidates = getAlphaBetaCandidates();
-        int limit = Math.min(candidates.size(), 11);
+        int[] pairs = candidatePairs(player, ply, prevPair);
 
-        for (int i = 0; i < limit; i++) {
-            int[] p1 = candidates.get(i);
-            if (boardState[p1[0]][p1[1]] != BLANK) continue;
+        for (int code : pairs) {
+            int p1 = code / TOTAL, p2 = code % TOTAL;
+            updateBoard(p1 / LENGTH, p1 % LENGTH, player);
+            updateBoard(p2 / LENGTH, p2 % LENGTH, player);
 
-            updateBoard(p1[0], p1[1], player);
+            int value = -alphaBeta(-beta, -alpha, player ^ 1, depth - 1, ply + 1, code);
 
-            for (int j = i; j < limit; j++) {
-                int[] p2 = candidates.get(j);
-                if (boardState[p2[0]][p2[1]] != BLANK) continue;
+            updateBoard(p2 / LENGTH, p2 % LENGTH, BLANK);
+            updateBoard(p1 / LENGTH, p1 % LENGTH, BLANK);
 
-                updateBoard(p2[0], p2[1], player);
+            if (value >= beta) {
+                ordering.onCutoff(code, player, depth, ply, prevPair);
+                return beta;
+            }
+            if (value > alpha) {
+                alpha = value;
+            }
+        }
 
-                int value = -alphaBeta(-beta, -alpha, player ^ 1, depth - 1);
+        return alpha;
+    }
 
-                updateBoard(p2[0], p2[1], BLANK);
+    /**
+     * 本节点要搜索的组合：取静态评估最高的 CANDIDATE_WIDTH 个候选格，
+     * 由 PairSelector 按"单点分之和 + 配合分"选出前 PAIR_LIMIT 个组合，再按杀手/历史/应着表排序。
+     */
+    private int[] candidatePairs(int player, int ply, int prevPair) {
+        int[] cells = new int[CANDIDATE_WIDTH];
+        long[] scores = new long[CANDIDATE_WIDTH];
+        int n = topCandidates(cells, scores, CANDIDATE_WIDTH);
+        List<PairSelector.Pair> selected = pairSelector.select(cells, scores, n,
+                (a, b) -> sharesOpenWindow(a, b, player) ? PAIR_LINK_BONUS : 0, PAIR_LINK_BONUS, PAIR_LIMIT);
+
+        int m = selected.size();
+        int[] codes = new int[m];
+        long[] sums = new long[m];
+        for (int i = 0; i < m; i++) {
+            PairSelector.Pair pair = selected.get(i);
+            codes[i] = MoveOrdering.pairCode(pair.a, pair.b);
+            sums[i] = pair.score;
+        }
+        ordering.orderPairs(codes, sums, m, player, ply, prevPair);
+        return codes;
+    }
 
-                if (value >= beta) {
-                    updateBoard(p1[0], p1[1], BLANK);
-                    return beta;
-                }
-                if (value > alpha) {
-                    alpha = value;
-                }
+    /**
+     * 两格是否同在一条没有 player 敌子的路上
+     */
+    private boolean sharesOpenWindow(int a, int b, int player) {
+        int[][] counts = windows.counts();
+        for (int w : WindowTable.OF_CELL[a]) {
+            if (counts[w][player ^ 1] != 0) continue;
+            for (int cell : WindowTable.CELLS[w]) {
+                if (cell == b) return true;
             }
-
-            updateBoard(p1[0], p1[1], BLANK);
         }
-
-        return alpha;
+        return false;
     }
 
-    private List<int[]> getAlphaBetaCandidates() {
-        List<int[]> candidates = new ArrayList<>();
+    /**
+     * 取静态评估最高的 k 个候选格(有邻子的空位)，按分数降序写入 cells/scores，返回实际个数。
+     * 只维护长度为 k 的有序数组，不对全部候选排序。
+     */
+    private int topCandidates(int[] cells, long[] scores, int k) {
+        int n = 0;
         for (int x = 0; x < LENGTH; x++) {
             for (int y = 0; y < LENGTH; y++) {
-                if (boardState[x][y] == BLANK && hasNeighbor(x, y)) {
-                    long score = evaluations[x][y][SELF] + evaluations[x][y][OPP];
-                    candidates.add(new int[]{x, y, (int) Math.min(score, Integer.MAX_VALUE)});
+                if (boardState[x][y] != BLANK || !hasNeighbor(x, y)) continue;
+                long score = evaluations[x][y][SELF] + evaluations[x][y][OPP];
+                if (n == k && score <= scores[k - 1]) continue;
+                int i = n < k ? n++ : k - 1;
+                while (i > 0 && scores[i - 1] < score) {
+                    cells[i] = cells[i - 1];
+                    scores[i] = scores[i - 1];
+                    i--;
                 }
+                cells[i] = x * LENGTH + y;
+                scores[i] = score;
             }
         }
-        candidates.sort((a, b) -> b[2] - a[2]);
-        return candidates;
+        return n;
+    }
+
+    private int countCandidates() {
+        int n = 0;
+        for (int x = 0; x < LENGTH; x++) {
+            for (int y = 0; y < LENGTH; y++) {
+                if (boardState[x][y] == BLANK && hasNeighbor(x, y)) n++;
+            }
+        }
+        return n;
     }
 
     private boolean hasNeighbor(int x, int y) {
@@ -539,7 +877,14 @@ public class AI extends core.player.AI {
             moveSet.remove(new MCTSMove(x, y, Math.max(evaluations[x][y][SELF], evaluations[x][y][OPP])));
         }
 
+        if (currentPlayer == SELF || currentPlayer == OPP) {
+            hashKey ^= ZOBRIST[x][y][currentPlayer];
+        }
+        if (player == SELF || player == OPP) {
+            hashKey ^= ZOBRIST[x][y][player];
+        }
         boardState[x][y] = player;
+        windows.set(x * LENGTH + y, player);
 
         // 修复：使用 Set<Long> 或 Set<Integer> 存储位置编码
         Set<Integer> changedPositions = new HashSet<>();
@@ -595,14 +940,20 @@ public class AI extends core.player.AI {
     }
 
     private void evaluateState(int x, int y, int player) {
+        evaluateState(allStates, evaluations, x, y, player, params);
+    }
+
+    private static void evaluateState(State[][][][] allStates, long[][][] evaluations, int x, int y, int player,
+                                      Params params) {
         long value = 1;
         for (int dir = 0; dir < 4; dir++) {
-            long weight = allStates[x][y][dir][player].evaluateWeight(player);
+            long weight = allStates[x][y][dir][player].evaluateWeight(player, params);
             if (weight >= WIN_SCORE) {
                 value = WIN_SCORE;
                 break;
             }
-            value *= weight;
+            // 饱和乘法：乘积溢出或达到 WIN_SCORE 都会被误认作连六
+            value = value > (WIN_SCORE - 1) / weight ? WIN_SCORE - 1 : value * weight;
         }
         evaluations[x][y][player] = value;
     }
@@ -620,6 +971,13 @@ public class AI extends core.player.AI {
             this.player = player;
         }
 
+        void copyFrom(State o) {
+            System.arraycopy(o.connectedLen, 0, connectedLen, 0, 2);
+            System.arraycopy(o.hopedConnectedLen, 0, hopedConnectedLen, 0, 2);
+            System.arraycopy(o.isLenNextBlank, 0, isLenNextBlank, 0, 2);
+            System.arraycopy(o.isHopedLenNextBlank, 0, isHopedLenNextBlank, 0, 2);
+        }
+
         void updateState(State neighbour, int neighbourPlayer, int lr) {
             if (neighbourPlayer == BLANK) {
                 connectedLen[lr] = 0;
@@ -639,7 +997,7 @@ public class AI extends core.player.AI {
             }
         }
 
-        long evaluateWeight(int evalPlayer) {
+        long evaluateWeight(int evalPlayer, Params params) {
             int totalConnectLen = connectedLen[0] + connectedLen[1] + 1;
             if (totalConnectLen >= 6) return WIN_SCORE;
 
@@ -649,8 +1007,8 @@ public class AI extends core.player.AI {
             int leftOpenEnds = (isLenNextBlank[1] ? 1 : 0) + (isHopedLenNextBlank[0] ? 1 : 0);
             int rightOpenEnds = (isLenNextBlank[0] ? 1 : 0) + (isHopedLenNextBlank[1] ? 1 : 0);
 
-            long[][] vigilance = (evalPlayer == SELF) ? VIGILANCE_SELF : VIGILANCE_OPP;
-            long[][] hoped = (evalPlayer == SELF) ? HOPED_SELF : HOPED_OPP;
+            long[][] vigilance = (evalPlayer == SELF) ? params.vigilanceSelf : params.vigilanceOpp;
+            long[][] hoped = (evalPlayer == SELF) ? params.hopedSelf : params.hopedOpp;
 
             return Math.max(Math.max(
                             vigilance[Math.min(5, totalConnectLen)][openEnds],
@@ -659,6 +1017,71 @@ public class AI extends core.player.AI {
         }
     }
 
+    /**
+     * 一局棋的全部可复用状态，经 StatePool 在对局间从空棋盘模板就地重置
+     */
+    private static final class Position {
+        final int[][] boardState = new int[LENGTH][LENGTH];
+        final State[][][][] allStates = new State[LENGTH][LENGTH][4][2];
+        final long[][][] evaluations = new long[LENGTH][LENGTH][2];
+        final TreeSet<MCTSMove> moveSet = new TreeSet<>();
+        final WindowTable windows = new WindowTable();
+        final Map<Long, Node> nodeTable = new HashMap<>();
+        final Playout playout = new Playout(System.nanoTime());
+        final MoveOrdering ordering = new MoveOrdering();
+
+        Position() {
+            for (int x = 0; x < LENGTH; x++) {
+                for (int y = 0; y < LENGTH; y++) {
+                    for (int dir = 0; dir < 4; dir++) {
+                        allStates[x][y][dir][SELF] = new State(SELF);
+                        allStates[x][y][dir][OPP] = new State(OPP);
+                    }
+                }
+            }
+        }
+
+        /**
+         * 按参数构造空棋盘模板
+         */
+        static Position empty(Params params) {
+            Position p = new Position();
+            for (int x = 0; x < LENGTH; x++) {
+                for (int y = 0; y < LENGTH; y++) {
+                    p.boardState[x][y] = BLANK;
+                    for (int dir = 0; dir < 4; dir++) {
+                        // 初始化边界状态
+                        initBorderState(p.allStates[x][y][dir][SELF], x, y, dir);
+                        initBorderState(p.allStates[x][y][dir][OPP], x, y, dir);
+                    }
+                    evaluateState(p.allStates, p.evaluations, x, y, SELF, params);
+                    evaluateState(p.allStates, p.evaluations, x, y, OPP, params);
+                    p.moveSet.add(new MCTSMove(x, y, Math.max(p.evaluations[x][y][SELF], p.evaluations[x][y][OPP])));
+                }
+            }
+            return p;
+        }
+
+        void resetFrom(Position empty) {
+            for (int x = 0; x < LENGTH; x++) {
+                System.arraycopy(empty.boardState[x], 0, boardState[x], 0, LENGTH);
+                for (int y = 0; y < LENGTH; y++) {
+                    System.arraycopy(empty.evaluations[x][y], 0, evaluations[x][y], 0, 2);
+                    for (int dir = 0; dir < 4; dir++) {
+                        allStates[x][y][dir][SELF].copyFrom(empty.allStates[x][y][dir][SELF]);
+                        allStates[x][y][dir][OPP].copyFrom(empty.allStates[x][y][dir][OPP]);
+                    }
+                }
+            }
+            // 同序的 SortedSet 整体加入空 TreeSet 时为线性构建
+            moveSet.clear();
+            moveSet.addAll(empty.moveSet);
+            windows.clear();
+            nodeTable.clear();
+            ordering.clear();
+        }
+    }
+
     private static class MCTSMove implements Comparable<MCTSMove> {
         int x, y;
         long weight;
@@ -698,15 +1121,11 @@ public class AI extends core.player.AI {
         int end = BLANK;
         int visitedTimes = 0;
         int winTimes = 0;
-        MCTSMove move1, move2;
-        Node parent;
-        List<Node> children = new ArrayList<>();
+        int edgeVisits = 0;                  // 经由本节点各出边的访问总数
+        List<Edge> edges = new ArrayList<>();
 
-        Node(int player, MCTSMove move1, MCTSMove move2, Node parent) {
+        Node(int player) {
             this.player = player;
-            this.move1 = move1;
-            this.move2 = move2;
-            this.parent = parent;
         }
 
         void updateNode(int loser) {
@@ -719,6 +1138,21 @@ public class AI extends core.player.AI {
         }
     }
 
+    /**
+     * DAG中的一条边：一步双子着法及其指向的(可能被多个父节点共享的)子节点
+     */
+    private static class Edge {
+        MCTSMove move1, move2;
+        Node child;
+        int visitedTimes = 0;
+
+        Edge(MCTSMove move1, MCTSMove move2, Node child) {
+            this.move1 = move1;
+            this.move2 = move2;
+            this.child = child;
+        }
+    }
+
     private Move safeReturn(Move move) {
         try {
             if (move == null) move = getFallbackMove();
@@ -758,7 +1192,7 @@ public class AI extends core.player.AI {
         return -1;
     }
 
-    private boolean inBoard(int x, int y) {
+    private static boolean inBoard(int x, int y) {
         return x >= 0 && x < LENGTH && y >= 0 && y < LENGTH;
     }
 
@@ -766,8 +1200,13 @@ public class AI extends core.player.AI {
         return m != null && m.index1() >= 0;
     }
 
+    /**
+     * 本步是否该停止：固定搜索量时只看节点数，否则看计时器(摊销采样)；CPU 计时下另以墙钟上限兜底
+     */
     private boolean isTimeout() {
-        return System.currentTimeMillis() - startTime > TIME_LIMIT_MS;
+        if (BUDGET.fixed()) return BUDGET.nodesExhausted(nodes);
+        if (clock.cpu() && System.currentTimeMillis() - moveStartMs > wallLimitMs) return true;
+        return clock.expired(moveBudgetMs);
     }
 
     private int getBoardStoneCount() {
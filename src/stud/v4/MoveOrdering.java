@@ -0,0 +1,102 @@
+package stud.v4;
+
+import java.util.Arrays;
+
+/**
+ * V4 Alpha-Beta 的着法排序表
+ * 1. 杀手着法：每层记录最近两个引起剪枝的双子组合
+ * 2. 历史表(butterfly)：按 [格子][玩家] 累加剪枝时的 depth^2
+ * 3. 应着表：按对手上一步的两个格子记录引起剪枝的应着
+ * 表随对局保留(每次搜索前历史分减半)，对局之间清空。
+ * 双子组合编码为 min(p1,p2) * 361 + max(p1,p2)。
+ */
+final class MoveOrdering {
+
+    private static final int TOTAL = 19 * 19;
+    static final int MAX_PLY = 16;
+
+    // 排序分档：杀手1 > 杀手2 > 应着 > 其余(按历史分、静态分)
+    private static final int TIER_KILLER1 = 3;
+    private static final int TIER_KILLER2 = 2;
+    private static final int TIER_COUNTER = 1;
+
+    private final int[][] killers = new int[MAX_PLY][2];
+    private final int[][] history = new int[TOTAL][2];
+    private final int[][] counters = new int[TOTAL][2];
+
+    MoveOrdering() {
+        clear();
+    }
+
+    static int pairCode(int p1, int p2) {
+        return Math.min(p1, p2) * TOTAL + Math.max(p1, p2);
+    }
+
+    void clear() {
+        for (int[] k : killers) Arrays.fill(k, -1);
+        for (int[] h : history) Arrays.fill(h, 0);
+        for (int[] c : counters) Arrays.fill(c, -1);
+    }
+
+    /**
+     * 新一次搜索开始：历史分减半，使近期的剪枝信息占主导
+     */
+    void age() {
+        for (int[] h : history) {
+            h[0] >>= 1;
+            h[1] >>= 1;
+        }
+        for (int[] k : killers) Arrays.fill(k, -1);
+    }
+
+    void onCutoff(int code, int player, int depth, int ply, int prevCode) {
+        int bonus = depth * depth;
+        history[code / TOTAL][player] += bonus;
+        history[code % TOTAL][player] += bonus;
+        if (ply < MAX_PLY && killers[ply][0] != code) {
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = code;
+        }
+        if (prevCode >= 0) {
+            counters[prevCode / TOTAL][player] = code;
+            counters[prevCode % TOTAL][player] = code;
+        }
+    }
+
+    /**
+     * 就地排序候选组合(由 PairSelector 按静态分选出)
+     *
+     * @param codes      组合编码
+     * @param staticSums 各组合的静态分
+     * @param m          组合数量
+     */
+    void orderPairs(int[] codes, long[] staticSums, int m, int player, int ply, int prevCode) {
+        long[] keys = new long[m];
+        int k1 = ply < MAX_PLY ? killers[ply][0] : -1;
+        int k2 = ply < MAX_PLY ? killers[ply][1] : -1;
+        int c1 = prevCode >= 0 ? counters[prevCode / TOTAL][player] : -1;
+        int c2 = prevCode >= 0 ? counters[prevCode % TOTAL][player] : -1;
+
+        for (int i = 0; i < m; i++) {
+            int code = codes[i];
+            int tier = code == k1 ? TIER_KILLER1 : code == k2 ? TIER_KILLER2
+                    : (code == c1 || code == c2) ? TIER_COUNTER : 0;
+            long hist = Math.min(history[code / TOTAL][player] + (long) history[code % TOTAL][player], 0xFFFFFL);
+            long stat = Math.min(Math.max(staticSums[i], 0) >> 4, 0x3FFFFFFFFL);
+            keys[i] = ((long) tier << 60) | (hist << 34) | stat;
+        }
+        // 按键值降序插入排序(组合数约百个)
+        for (int i = 1; i < m; i++) {
+            long key = keys[i];
+            int code = codes[i];
+            int j = i - 1;
+            while (j >= 0 && keys[j] < key) {
+                keys[j + 1] = keys[j];
+                codes[j + 1] = codes[j];
+                j--;
+            }
+            keys[j + 1] = key;
+            codes[j + 1] = code;
+        }
+    }
+}
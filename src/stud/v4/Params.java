@@ -0,0 +1,224 @@
+package stud.v4;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Properties;
+
+/**
+ * V4 的可调参数：MCTS 探索常数与四张棋型权重表
+ * 默认值即原先写死的常量；也可从参数文件(Properties 格式)或参数向量构造，供调参程序使用。
+ * 系统属性 stud.v4.params 指定参数文件时，无参构造的 V4 使用该文件中的参数。
+ * 参数向量：前两维为 A、K，其后依次为四张表(每张 6x3，按行展开)的 ln(权重)。
+ * 权重在对数空间调整，相同的扰动对 1 和 10000 的权重都是同样比例的变化；
+ * SCALE 为各维的典型步长，调参程序在除以 SCALE 后的归一化坐标中工作。
+ * BASE_C 目前未被搜索使用，只随参数文件保存，不进入向量。实例不可变。
+ */
+public final class Params {
+
+    public static final int ROWS = 6;
+    public static final int COLS = 3;
+    private static final int TABLE_SIZE = ROWS * COLS;
+    private static final String[] TABLE_NAMES = {"vigilance.self", "vigilance.opp", "hoped.self", "hoped.opp"};
+
+    /** 向量维数 */
+    public static final int DIMENSIONS = 2 + TABLE_NAMES.length * TABLE_SIZE;
+    /** 向量各维的典型步长 */
+    public static final double[] SCALE = new double[DIMENSIONS];
+    private static final double[] MIN = new double[DIMENSIONS];
+    private static final double[] MAX = new double[DIMENSIONS];
+
+    static {
+        SCALE[0] = 0.05;
+        MIN[0] = 0.01;
+        MAX[0] = 3;
+        SCALE[1] = 0.05;
+        MIN[1] = 0;
+        MAX[1] = 2;
+        for (int i = 2; i < DIMENSIONS; i++) {
+            SCALE[i] = 0.25;
+            MIN[i] = 0;
+            // 单项权重不超过 3e4，四个方向相乘不超过 8.1e17，不会溢出 long
+            MAX[i] = Math.log(3e4);
+        }
+    }
+
+    public static final Params DEFAULT = new Params(1.5, 0.3, 0.2, new long[][][]{
+            // 自己的棋型
+            {{1, 1, 1}, {1, 1, 1}, {1, 1, 3}, {1, 3, 12}, {1, 100, 10030}, {1, 10080, 10080}},
+            // 对手的棋型
+            {{1, 1, 1}, {1, 1, 1}, {1, 1, 2}, {1, 4, 10}, {1, 110, 10100}, {1, 10050, 10100}},
+            // 跳连 - 自己
+            {{1, 1, 1}, {1, 1, 1}, {1, 1, 1}, {1, 3, 5}, {1, 115, 120}, {900, 960, 1050}},
+            // 跳连 - 对手
+            {{1, 1, 1}, {1, 1, 1}, {1, 1, 1}, {1, 2, 4}, {1, 110, 120}, {900, 940, 1050}}
+    });
+
+    private static volatile Params configured;
+
+    final double baseC;
+    final double a;
+    final double k;
+    final long[][] vigilanceSelf;
+    final long[][] vigilanceOpp;
+    final long[][] hopedSelf;
+    final long[][] hopedOpp;
+
+    private Params(double baseC, double a, double k, long[][][] tables) {
+        this.baseC = baseC;
+        this.a = a;
+        this.k = k;
+        for (long[][] table : tables) {
+            if (table.length != ROWS) throw new IllegalArgumentException("table must have " + ROWS + " rows");
+            for (long[] row : table) {
+                if (row.length != COLS) throw new IllegalArgumentException("table rows must have " + COLS + " entries");
+                for (long w : row) if (w < 1) throw new IllegalArgumentException("weights must be at least 1");
+            }
+        }
+        this.vigilanceSelf = copy(tables[0]);
+        this.vigilanceOpp = copy(tables[1]);
+        this.hopedSelf = copy(tables[2]);
+        this.hopedOpp = copy(tables[3]);
+    }
+
+    private static long[][] copy(long[][] table) {
+        long[][] c = new long[ROWS][];
+        for (int i = 0; i < ROWS; i++) c[i] = table[i].clone();
+        return c;
+    }
+
+    private long[][][] tables() {
+        return new long[][][]{vigilanceSelf, vigilanceOpp, hopedSelf, hopedOpp};
+    }
+
+    /**
+     * 无参构造的 V4 使用的参数：系统属性 stud.v4.params 指定的文件，未指定时为默认值
+     */
+    public static Params configured() {
+        Params p = configured;
+        if (p == null) {
+            String file = System.getProperty("stud.v4.params");
+            try {
+                p = file == null ? DEFAULT : load(Paths.get(file));
+            } catch (IOException e) {
+                throw new IllegalStateException("cannot read V4 parameters from " + file, e);
+            }
+            configured = p;
+        }
+        return p;
+    }
+
+    // ==================== 向量 ====================
+
+    public double[] toVector() {
+        double[] v = new double[DIMENSIONS];
+        v[0] = a;
+        v[1] = k;
+        int i = 2;
+        for (long[][] table : tables()) {
+            for (long[] row : table) {
+                for (long w : row) v[i++] = Math.log(w);
+            }
+        }
+        return v;
+    }
+
+    /**
+     * 由向量构造参数，越界的维度截到合法范围；BASE_C 沿用本实例的值
+     */
+    public Params withVector(double[] v) {
+        if (v.length != DIMENSIONS) throw new IllegalArgumentException("vector must have " + DIMENSIONS + " entries");
+        long[][][] tables = new long[TABLE_NAMES.length][ROWS][COLS];
+        int i = 2;
+        for (long[][] table : tables) {
+            for (long[] row : table) {
+                for (int c = 0; c < COLS; c++, i++) row[c] = Math.max(1, Math.round(Math.exp(clamp(v[i], i))));
+            }
+        }
+        return new Params(baseC, clamp(v[0], 0), clamp(v[1], 1), tables);
+    }
+
+    /**
+     * 把向量截到各维的合法范围内
+     */
+    public static double clamp(double value, int dimension) {
+        return Math.max(MIN[dimension], Math.min(MAX[dimension], value));
+    }
+
+    // ==================== 参数文件 ====================
+
+    public static Params load(Path file) throws IOException {
+        Properties props = new Properties();
+        try (Reader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            props.load(in);
+        }
+        long[][][] tables = DEFAULT.tables();
+        for (int t = 0; t < TABLE_NAMES.length; t++) {
+            String value = props.getProperty(TABLE_NAMES[t]);
+            if (value != null) tables[t] = parseTable(TABLE_NAMES[t], value);
+        }
+        return new Params(
+                number(props, "baseC", DEFAULT.baseC),
+                number(props, "a", DEFAULT.a),
+                number(props, "k", DEFAULT.k),
+                tables);
+    }
+
+    public void save(Path file) throws IOException {
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("# V4 parameters\n");
+            out.write("baseC=" + baseC + "\n");
+            out.write("a=" + a + "\n");
+            out.write("k=" + k + "\n");
+            long[][][] tables = tables();
+            for (int t = 0; t < TABLE_NAMES.length; t++) {
+                out.write(TABLE_NAMES[t] + "=" + formatTable(tables[t]) + "\n");
+            }
+        }
+    }
+
+    private static double number(Properties props, String key, double fallback) {
+        String value = props.getProperty(key);
+        return value == null ? fallback : Double.parseDouble(value.trim());
+    }
+
+    // 表按行写成 "1 1 1 | 1 1 3 | ..."
+    private static String formatTable(long[][] table) {
+        StringBuilder sb = new StringBuilder();
+        for (int r = 0; r < ROWS; r++) {
+            if (r > 0) sb.append(" | ");
+            for (int c = 0; c < COLS; c++) {
+                if (c > 0) sb.append(' ');
+                sb.append(table[r][c]);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static long[][] parseTable(String name, String value) {
+        String[] rows = value.split("\\|");
+        if (rows.length != ROWS) throw new IllegalArgumentException(name + " must have " + ROWS + " rows");
+        long[][] table = new long[ROWS][COLS];
+        for (int r = 0; r < ROWS; r++) {
+            String[] cells = rows[r].trim().split("\\s+");
+            if (cells.length != COLS) throw new IllegalArgumentException(name + " rows must have " + COLS + " entries");
+            for (int c = 0; c < COLS; c++) table[r][c] = Long.parseLong(cells[c]);
+        }
+        return table;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("a=%.4f k=%.4f", a, k));
+        long[][][] tables = tables();
+        for (int t = 0; t < TABLE_NAMES.length; t++) {
+            sb.append(' ').append(TABLE_NAMES[t]).append("=[").append(formatTable(tables[t])).append(']');
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,206 @@
+package stud.v4;
+
+import stud.common.WindowTable;
+
+/**
+ * V4 的快速模拟(rollout)引擎
+ * 在一份紧凑的棋盘拷贝上双方轮流各下两子，直到分出胜负或达到步数上限。
+ * 走子策略(由强到弱)：
+ * 1. 立即取胜：己方某条"路"(连续6格)已有4子以上且无敌子，补满即胜
+ * 2. 强制防守：对方有上述的"路"，优先堵在覆盖威胁最多的空位
+ * 3. 其余按叶节点处的评估值加权随机采样
+ * 所有数组在构造时一次分配，单次模拟不产生任何对象。
+ */
+final class Playout {
+
+    private static final int LENGTH = 19;
+    private static final int TOTAL = LENGTH * LENGTH;
+
+    private static final int SELF = 0;
+    private static final int OPP = 1;
+    private static final int BLANK = 2;
+
+    // 每次模拟最多进行的回合数(双方各算一回合)，超过按和棋处理
+    private static final int MAX_TURNS = 40;
+    // 采样权重上限，避免超大评估值使采样退化为贪心
+    private static final long WEIGHT_CAP = 1_000_000L;
+
+    private final byte[] board = new byte[TOTAL];
+    private final int[][] counts = new int[WindowTable.COUNT][2];
+
+    // 每方可能构成威胁的路(可能含已失效项，使用时再校验)
+    // 一条路在4、5、6子时各可能入表一次，故容量取3倍
+    private final int[][] threats = new int[2][WindowTable.COUNT * 3];
+    private final int[] threatSize = new int[2];
+
+    // 加权采样用的候选格与累积权重
+    private final int[] cells = new int[TOTAL];
+    private final long[] cumulative = new long[TOTAL];
+    private int cellSize;
+
+    // 防守时统计每个空位覆盖的威胁数
+    private final int[] cover = new int[TOTAL];
+    private final int[] touched = new int[TOTAL];
+
+    private long seed;
+
+    Playout(long seed) {
+        reseed(seed);
+    }
+
+    /**
+     * 重置随机数种子，之后的模拟序列只取决于种子与局面
+     */
+    void reseed(long seed) {
+        this.seed = seed == 0 ? 0x9E3779B97F4A7C15L : seed;
+    }
+
+    /**
+     * 从给定局面开始模拟一局
+     *
+     * @param boardState  V4 的棋盘 [x][y] -> SELF/OPP/BLANK
+     * @param evaluations V4 的评估值 [x][y][player]，作为采样先验
+     * @param windowCounts 每条路上双方的棋子数(来自 WindowTable)
+     * @param toMove      先走的一方
+     * @return 获胜方 SELF/OPP，未分胜负返回 BLANK
+     */
+    int run(int[][] boardState, long[][][] evaluations, int[][] windowCounts, int toMove) {
+        load(boardState, evaluations, windowCounts);
+
+        int player = toMove;
+        for (int turn = 0; turn < MAX_TURNS; turn++) {
+            for (int stone = 0; stone < 2; stone++) {
+                int cell = chooseCell(player);
+                if (cell < 0) return BLANK;
+                if (place(cell, player)) return player;
+            }
+            player ^= 1;
+        }
+        return BLANK;
+    }
+
+    private void load(int[][] boardState, long[][][] evaluations, int[][] windowCounts) {
+        threatSize[SELF] = 0;
+        threatSize[OPP] = 0;
+        cellSize = 0;
+        long total = 0;
+        for (int x = 0; x < LENGTH; x++) {
+            for (int y = 0; y < LENGTH; y++) {
+                int i = x * LENGTH + y;
+                board[i] = (byte) boardState[x][y];
+                if (boardState[x][y] == BLANK) {
+                    long weight = Math.min(WEIGHT_CAP,
+                            Math.max(evaluations[x][y][SELF], evaluations[x][y][OPP]));
+                    if (weight > 1) {
+                        total += weight;
+                        cells[cellSize] = i;
+                        cumulative[cellSize++] = total;
+                    }
+                }
+            }
+        }
+        for (int w = 0; w < WindowTable.COUNT; w++) {
+            int self = windowCounts[w][SELF], opp = windowCounts[w][OPP];
+            counts[w][SELF] = self;
+            counts[w][OPP] = opp;
+            if (self >= 4 && opp == 0) threats[SELF][threatSize[SELF]++] = w;
+            if (opp >= 4 && self == 0) threats[OPP][threatSize[OPP]++] = w;
+        }
+    }
+
+    /**
+     * 落子并增量更新所在的路，返回是否连成六子
+     */
+    private boolean place(int cell, int player) {
+        board[cell] = (byte) player;
+        boolean win = false;
+        for (int w : WindowTable.OF_CELL[cell]) {
+            int[] c = counts[w];
+            int own = ++c[player];
+            if (own == WindowTable.SIZE) win = true;
+            if (own >= 4 && c[player ^ 1] == 0) {
+                threats[player][threatSize[player]++] = w;
+            }
+        }
+        return win;
+    }
+
+    private boolean isThreat(int w, int player) {
+        return counts[w][player] >= 4 && counts[w][player ^ 1] == 0;
+    }
+
+    private int chooseCell(int player) {
+        // 1. 立即取胜：补己方威胁路上的空位
+        int[] own = threats[player];
+        for (int i = threatSize[player] - 1; i >= 0; i--) {
+            int w = own[i];
+            if (!isThreat(w, player)) {
+                own[i] = own[--threatSize[player]];
+                continue;
+            }
+            for (int cell : WindowTable.CELLS[w]) {
+                if (board[cell] == BLANK) return cell;
+            }
+        }
+
+        // 2. 强制防守：选覆盖对方威胁路最多的空位
+        int opp = player ^ 1;
+        int[] theirs = threats[opp];
+        int touchedSize = 0;
+        int best = -1, bestCover = 0;
+        for (int i = threatSize[opp] - 1; i >= 0; i--) {
+            int w = theirs[i];
+            if (!isThreat(w, opp)) {
+                theirs[i] = theirs[--threatSize[opp]];
+                continue;
+            }
+            for (int cell : WindowTable.CELLS[w]) {
+                if (board[cell] != BLANK) continue;
+                if (cover[cell] == 0) touched[touchedSize++] = cell;
+                if (++cover[cell] > bestCover) {
+                    bestCover = cover[cell];
+                    best = cell;
+                }
+            }
+        }
+        for (int i = 0; i < touchedSize; i++) cover[touched[i]] = 0;
+        if (best >= 0) return best;
+
+        // 3. 按评估值加权采样，命中已占位置时重试
+        if (cellSize > 0) {
+            long total = cumulative[cellSize - 1];
+            for (int attempt = 0; attempt < 16; attempt++) {
+                int cell = cells[search(nextLong(total))];
+                if (board[cell] == BLANK) return cell;
+            }
+        }
+        for (int attempt = 0; attempt < 64; attempt++) {
+            int cell = (int) nextLong(TOTAL);
+            if (board[cell] == BLANK) return cell;
+        }
+        for (int cell = 0; cell < TOTAL; cell++) {
+            if (board[cell] == BLANK) return cell;
+        }
+        return -1;
+    }
+
+    // 在累积权重中二分查找第一个大于 r 的位置
+    private int search(long r) {
+        int lo = 0, hi = cellSize - 1;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (cumulative[mid] > r) hi = mid;
+            else lo = mid + 1;
+        }
+        return lo;
+    }
+
+    // xorshift64*，返回 [0, bound)
+    private long nextLong(long bound) {
+        seed ^= seed >>> 12;
+        seed ^= seed << 25;
+        seed ^= seed >>> 27;
+        long r = (seed * 0x2545F4914F6CDD1DL) >>> 1;
+        return r % bound;
+    }
+}
@@ -0,0 +1,213 @@
+package stud.v4;
+
+import stud.common.MoveClock;
+import stud.common.WindowTable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 连续威胁求解(VCF的六子棋版本)
+ * 进攻方每步都必须造出威胁(某条路达到4子且无敌子)，防守方只能用 WindowTable 给出的命中集应对；
+ * 若在限定深度内所有应对之后进攻方都能连六，则找到必胜序列。
+ * 求解只改动路表，不触及 V4 的棋盘与评估表，落子/撤子代价很低。
+ */
+final class ThreatSolver {
+
+    // 每个节点最多尝试的进攻组合数、防守方第二子的候选数(超过则不再算作必胜)
+    private static final int ATTACK_WIDTH = 16;
+    private static final int FREE_STONE_WIDTH = 10;
+
+    private final WindowTable windows;
+    private final MoveClock clock;
+    private final long budgetMillis;
+    private final long maxNodes;
+    private int nodes;
+
+    /**
+     * @param clock        本步的计时器，求解到本步用时达到 budgetMillis 为止；为 null 时不看时间
+     * @param maxNodes     节点数上限，0 为不限(固定搜索量时用)；clock 为 null 时必须给出
+     */
+    ThreatSolver(WindowTable windows, MoveClock clock, long budgetMillis, long maxNodes) {
+        if (clock == null && maxNodes <= 0) throw new IllegalArgumentException("threat search needs a clock or a node limit");
+        this.windows = windows;
+        this.clock = clock;
+        this.budgetMillis = budgetMillis;
+        this.maxNodes = maxNodes;
+    }
+
+    int nodes() {
+        return nodes;
+    }
+
+    /**
+     * 为 attacker 寻找连续威胁取胜的第一步
+     *
+     * @return {p1, p2}，未找到返回 null
+     */
+    int[] solve(int attacker, int depth) {
+        int[] win = windows.winningCells(attacker);
+        if (win != null) return win;
+        if (windows.hasThreat(attacker ^ 1)) return null;
+
+        for (int[] pair : attacks(attacker)) {
+            if (outOfBudget()) return null;
+            place(pair[0], attacker);
+            place(pair[1], attacker);
+            boolean proven = refuted(attacker, depth - 1);
+            remove(pair[1]);
+            remove(pair[0]);
+            if (proven) return pair;
+        }
+        return null;
+    }
+
+    /**
+     * 进攻方刚落子，判断防守方是否所有应对都会输
+     */
+    private boolean refuted(int attacker, int depth) {
+        nodes++;
+        int defender = attacker ^ 1;
+        // 防守方能直接连六则进攻失败
+        if (windows.winningCells(defender) != null) return false;
+
+        List<int[]> defenses = windows.defenses(defender);
+        if (defenses == null) return false;   // 没造出威胁，不构成连续威胁
+        if (defenses.isEmpty()) return true;  // 两子挡不住
+
+        for (int[] d : defenses) {
+            place(d[0], defender);
+            boolean lost;
+            if (d[1] >= 0) {
+                place(d[1], defender);
+                lost = attackerWins(attacker, depth);
+                remove(d[1]);
+            } else {
+                List<Integer> frees = freeStones(attacker, d[0]);
+                lost = frees != null;
+                for (int i = 0; lost && i < frees.size(); i++) {
+                    place(frees.get(i), defender);
+                    lost = attackerWins(attacker, depth);
+                    remove(frees.get(i));
+                }
+            }
+            remove(d[0]);
+            if (!lost) return false;
+        }
+        return true;
+    }
+
+    private boolean attackerWins(int attacker, int depth) {
+        if (windows.winningCells(attacker) != null) return true;
+        if (depth <= 0 || windows.hasThreat(attacker ^ 1)) return false;
+        if (outOfBudget()) return false;
+
+        for (int[] pair : attacks(attacker)) {
+            place(pair[0], attacker);
+            place(pair[1], attacker);
+            boolean proven = refuted(attacker, depth - 1);
+            remove(pair[1]);
+            remove(pair[0]);
+            if (proven) return true;
+        }
+        return false;
+    }
+
+    /**
+     * 能造出威胁的双子组合：己方已有2子或3子且无敌子的路中任取两个空格，
+     * 按新造出的威胁路数量降序，双威胁优先。
+     */
+    private List<int[]> attacks(int attacker) {
+        int[][] counts = windows.counts();
+        List<int[]> pairs = new ArrayList<>();
+        List<Integer> scores = new ArrayList<>();
+        Set<Integer> seen = new HashSet<>();
+        int[] empty = new int[WindowTable.SIZE];
+        for (int w = 0; w < WindowTable.COUNT; w++) {
+            int own = counts[w][attacker];
+            if (own < 2 || own > 3 || counts[w][attacker ^ 1] != 0) continue;
+            int n = 0;
+            for (int cell : WindowTable.CELLS[w]) {
+                if (windows.isEmpty(cell)) empty[n++] = cell;
+            }
+            for (int i = 0; i < n; i++) {
+                for (int j = i + 1; j < n; j++) {
+                    int a = Math.min(empty[i], empty[j]), b = Math.max(empty[i], empty[j]);
+                    if (!seen.add(a * WindowTable.TOTAL + b)) continue;
+                    pairs.add(new int[]{a, b});
+                    scores.add(newThreats(a, b, attacker));
+                }
+            }
+        }
+        List<int[]> ordered = new ArrayList<>(pairs.size());
+        Integer[] order = new Integer[pairs.size()];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        Arrays.sort(order, (x, y) -> scores.get(y) - scores.get(x));
+        for (int i = 0; i < order.length && i < ATTACK_WIDTH; i++) ordered.add(pairs.get(order[i]));
+        return ordered;
+    }
+
+    private int newThreats(int a, int b, int attacker) {
+        place(a, attacker);
+        place(b, attacker);
+        int[][] counts = windows.counts();
+        int n = 0;
+        for (int w : WindowTable.OF_CELL[a]) {
+            if (counts[w][attacker] >= 4 && counts[w][attacker ^ 1] == 0) n++;
+        }
+        for (int w : WindowTable.OF_CELL[b]) {
+            if (counts[w][attacker] >= 4 && counts[w][attacker ^ 1] == 0) n++;
+        }
+        remove(b);
+        remove(a);
+        return n;
+    }
+
+    /**
+     * 防守方只需一子时第二子的候选：attacks 可能用到的每个空格(进攻方有2、3子且无敌子的路)，
+     * 以及防守方自己有3子以上的路上能造出反威胁的空格。
+     * 候选超过 FREE_STONE_WIDTH 时返回 null，只试一部分不能证明必胜。
+     */
+    private List<Integer> freeStones(int attacker, int exclude) {
+        int[][] counts = windows.counts();
+        List<Integer> cells = new ArrayList<>();
+        boolean[] seen = new boolean[WindowTable.TOTAL];
+        for (int w = 0; w < WindowTable.COUNT; w++) {
+            int own = counts[w][attacker], other = counts[w][attacker ^ 1];
+            boolean attack = own >= 2 && other == 0;
+            boolean counter = other >= 3 && own == 0;
+            if (!attack && !counter) continue;
+            for (int cell : WindowTable.CELLS[w]) {
+                if (cell != exclude && windows.isEmpty(cell) && !seen[cell]) {
+                    seen[cell] = true;
+                    cells.add(cell);
+                    if (cells.size() > FREE_STONE_WIDTH) return null;
+                }
+            }
+        }
+        if (cells.isEmpty()) {
+            for (int cell = 0; cell < WindowTable.TOTAL; cell++) {
+                if (cell != exclude && windows.isEmpty(cell)) {
+                    cells.add(cell);
+                    break;
+                }
+            }
+        }
+        return cells;
+    }
+
+    private void place(int cell, int player) {
+        windows.place(cell, player);
+    }
+
+    private void remove(int cell) {
+        windows.remove(cell);
+    }
+
+    private boolean outOfBudget() {
+        return (maxNodes > 0 && nodes >= maxNodes) || (clock != null && clock.expired(budgetMillis));
+    }
+}